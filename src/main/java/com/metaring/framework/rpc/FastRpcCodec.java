@@ -0,0 +1,383 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.framework.rpc;
+
+import com.metaring.framework.Tools;
+import com.metaring.framework.functionality.FunctionalityExecutionResult;
+import com.metaring.framework.type.DataRepresentation;
+
+public final class FastRpcCodec implements RpcCodec {
+
+    static final FastRpcCodec INSTANCE = new FastRpcCodec();
+
+    private static final String REQUEST = "RpcRequest";
+    private static final String RESPONSE = "RpcResponse";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private FastRpcCodec() {
+    }
+
+    @Override
+    public final RpcRequest decodeRequest(String json) throws RpcCodecException {
+        Reader reader = Reader.open(REQUEST, json);
+        if(reader == null) {
+            return null;
+        }
+        Long id = null;
+        DataRepresentation data = null;
+        String name = null;
+        DataRepresentation param = null;
+        String field;
+        while((field = reader.nextField()) != null) {
+            switch(field) {
+                case "id":
+                    id = reader.readLong(field);
+                    break;
+                case "data":
+                    data = reader.readData(field);
+                    break;
+                case "name":
+                    name = reader.readString(field);
+                    break;
+                case "param":
+                    param = reader.readData(field);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return RpcRequest.create(id, data, name, param);
+    }
+
+    @Override
+    public final RpcResponse decodeResponse(String json) throws RpcCodecException {
+        Reader reader = Reader.open(RESPONSE, json);
+        if(reader == null) {
+            return null;
+        }
+        Long id = null;
+        FunctionalityExecutionResult result = null;
+        String field;
+        while((field = reader.nextField()) != null) {
+            switch(field) {
+                case "id":
+                    id = reader.readLong(field);
+                    break;
+                case "result":
+                    DataRepresentation data = reader.readData(field);
+                    result = data == null ? null : data.as(FunctionalityExecutionResult.class);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return RpcResponse.create(id, result);
+    }
+
+    @Override
+    public final String encodeRequest(RpcRequest rpcRequest) {
+        if(rpcRequest == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder(128).append('{');
+        if(rpcRequest.getId() != null) {
+            json.append("\"id\":").append(rpcRequest.getId().longValue());
+        }
+        appendData(json, "data", rpcRequest.getData());
+        if(rpcRequest.getName() != null) {
+            appendQuoted(json.append(json.length() > 1 ? "," : "").append("\"name\":"), rpcRequest.getName());
+        }
+        appendData(json, "param", rpcRequest.getParam());
+        return json.append('}').toString();
+    }
+
+    @Override
+    public final String encodeResponse(RpcResponse rpcResponse) {
+        if(rpcResponse == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder(128).append('{');
+        if(rpcResponse.getId() != null) {
+            json.append("\"id\":").append(rpcResponse.getId().longValue());
+        }
+        if(rpcResponse.getResult() != null) {
+            json.append(json.length() > 1 ? "," : "").append("\"result\":").append(rpcResponse.getResult().toJson());
+        }
+        return json.append('}').toString();
+    }
+
+    private static final void appendData(StringBuilder json, String name, DataRepresentation data) {
+        if(data != null) {
+            json.append(json.length() > 1 ? "," : "").append('"').append(name).append("\":").append(data.toJson());
+        }
+    }
+
+    private static final void appendQuoted(StringBuilder json, String value) {
+        json.append('"');
+        int start = 0;
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            json.append(value, start, i);
+            start = i + 1;
+            if(c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else {
+                json.append("\\u00").append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+            }
+        }
+        json.append(value, start, value.length()).append('"');
+    }
+
+    private static final class Reader {
+
+        private final String type;
+        private final String json;
+        private final int length;
+        private int position;
+        private int fields;
+
+        private Reader(String type, String json, int position) {
+            this.type = type;
+            this.json = json;
+            this.length = json.length();
+            this.position = position;
+        }
+
+        private static final Reader open(String type, String json) {
+            if(json == null) {
+                return null;
+            }
+            Reader reader = new Reader(type, json, 0);
+            reader.skipWhitespace();
+            if(reader.position >= reader.length) {
+                return null;
+            }
+            if(json.regionMatches(true, reader.position, "null", 0, 4)) {
+                reader.position += 4;
+                reader.expectEnd();
+                return null;
+            }
+            reader.expect('{', null);
+            return reader;
+        }
+
+        private final String nextField() {
+            skipWhitespace();
+            if(position >= length) {
+                throw error(null, "unterminated object");
+            }
+            if(json.charAt(position) == '}') {
+                position++;
+                expectEnd();
+                return null;
+            }
+            if(fields++ > 0) {
+                expect(',', null);
+                skipWhitespace();
+            }
+            String field = readQuoted(null);
+            skipWhitespace();
+            expect(':', field);
+            skipWhitespace();
+            return field;
+        }
+
+        private final Long readLong(String field) {
+            if(readNull(field)) {
+                return null;
+            }
+            int start = position;
+            if(position < length && json.charAt(position) == '-') {
+                position++;
+            }
+            while(position < length && json.charAt(position) >= '0' && json.charAt(position) <= '9') {
+                position++;
+            }
+            if(position == start || (position == start + 1 && json.charAt(start) == '-')) {
+                throw error(field, "expected an integer");
+            }
+            try {
+                return Long.valueOf(json.substring(start, position));
+            }
+            catch(NumberFormatException e) {
+                throw new RpcCodecException(type, field, e);
+            }
+        }
+
+        private final String readString(String field) {
+            return readNull(field) ? null : readQuoted(field);
+        }
+
+        private final DataRepresentation readData(String field) {
+            if(readNull(field)) {
+                return null;
+            }
+            int start = position;
+            skipValue();
+            try {
+                return Tools.FACTORY_DATA_REPRESENTATION.fromJson(json.substring(start, position));
+            }
+            catch(RuntimeException e) {
+                throw new RpcCodecException(type, field, e);
+            }
+        }
+
+        private final void skipValue() {
+            int depth = 0;
+            int start = position;
+            while(position < length) {
+                char c = json.charAt(position);
+                if(c == '"') {
+                    readQuoted(null);
+                    if(depth == 0) {
+                        return;
+                    }
+                    continue;
+                }
+                if(c == '{' || c == '[') {
+                    depth++;
+                } else if(c == '}' || c == ']') {
+                    if(depth == 0) {
+                        break;
+                    }
+                    if(--depth == 0) {
+                        position++;
+                        return;
+                    }
+                } else if(c == ',' && depth == 0) {
+                    break;
+                }
+                position++;
+            }
+            if(depth > 0 || position == start) {
+                throw error(null, "expected a value");
+            }
+            while(position > start && Character.isWhitespace(json.charAt(position - 1))) {
+                position--;
+            }
+        }
+
+        private final boolean readNull(String field) {
+            if(!json.startsWith("null", position)) {
+                return false;
+            }
+            position += 4;
+            if(position < length && !isDelimiter(json.charAt(position))) {
+                throw error(field, "invalid literal");
+            }
+            return true;
+        }
+
+        private static final boolean isDelimiter(char c) {
+            return c == ',' || c == '}' || c == ']' || Character.isWhitespace(c);
+        }
+
+        private final String readQuoted(String field) {
+            expect('"', field);
+            StringBuilder value = null;
+            int start = position;
+            while(position < length) {
+                char c = json.charAt(position);
+                if(c == '"') {
+                    String text = value == null ? json.substring(start, position) : value.append(json, start, position).toString();
+                    position++;
+                    return text;
+                }
+                if(c != '\\') {
+                    position++;
+                    continue;
+                }
+                if(value == null) {
+                    value = new StringBuilder();
+                }
+                value.append(json, start, position);
+                if(position + 1 >= length) {
+                    break;
+                }
+                char escaped = json.charAt(position + 1);
+                switch(escaped) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if(position + 6 > length) {
+                            throw error(field, "truncated unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(json.substring(position + 2, position + 6), 16));
+                        }
+                        catch(NumberFormatException e) {
+                            throw error(field, "invalid unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        value.append(escaped);
+                        break;
+                    default:
+                        throw error(field, "invalid escape '\\" + escaped + "'");
+                }
+                position += 2;
+                start = position;
+            }
+            throw error(field, "unterminated string");
+        }
+
+        private final void expect(char expected, String field) {
+            if(position >= length || json.charAt(position) != expected) {
+                throw error(field, "expected '" + expected + "'");
+            }
+            position++;
+        }
+
+        private final void expectEnd() {
+            skipWhitespace();
+            if(position < length) {
+                throw error(null, "unexpected trailing content");
+            }
+        }
+
+        private final void skipWhitespace() {
+            while(position < length && Character.isWhitespace(json.charAt(position))) {
+                position++;
+            }
+        }
+
+        private final RpcCodecException error(String field, String message) {
+            return new RpcCodecException(type, field, position, message);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.framework.rpc;
+
+public final class RpcCodecException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String field;
+    private final int position;
+
+    RpcCodecException(String type, String field, int position, String message) {
+        super(type + (field == null ? "" : "." + field) + ": " + message + " at position " + position);
+        this.field = field;
+        this.position = position;
+    }
+
+    RpcCodecException(String type, String field, Throwable cause) {
+        super(type + "." + field + ": " + cause.getMessage(), cause);
+        this.field = field;
+        this.position = -1;
+    }
+
+    public final String getField() {
+        return field;
+    }
+
+    public final int getPosition() {
+        return position;
+    }
+}
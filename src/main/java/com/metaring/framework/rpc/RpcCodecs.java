@@ -0,0 +1,49 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.framework.rpc;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+public final class RpcCodecs {
+
+    private static volatile RpcCodec codec;
+
+    private RpcCodecs() {
+    }
+
+    public static final RpcCodec get() {
+        RpcCodec codec = RpcCodecs.codec;
+        if(codec == null) {
+            RpcCodecs.codec = codec = load();
+        }
+        return codec;
+    }
+
+    public static final void set(RpcCodec codec) {
+        RpcCodecs.codec = codec;
+    }
+
+    public static final RpcCodec fast() {
+        return FastRpcCodec.INSTANCE;
+    }
+
+    private static final RpcCodec load() {
+        Iterator<RpcCodec> codecs = ServiceLoader.load(RpcCodec.class).iterator();
+        return codecs.hasNext() ? codecs.next() : fast();
+    }
+}
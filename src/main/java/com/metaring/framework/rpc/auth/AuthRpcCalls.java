@@ -0,0 +1,61 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.framework.rpc.auth;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import com.metaring.framework.functionality.Functionality;
+import com.metaring.framework.rpc.RpcCodecException;
+import com.metaring.framework.rpc.RpcCodecs;
+import com.metaring.framework.rpc.RpcRequest;
+import com.metaring.framework.rpc.RpcResponse;
+
+public final class AuthRpcCalls {
+
+    private AuthRpcCalls() {
+    }
+
+    public static final CompletableFuture<RpcResponse> callRestrictedFromJson(String rpcRequestJson) {
+        return decode(rpcRequestJson, AuthFunctionalitiesManager::callRestricted);
+    }
+
+    public static final CompletableFuture<RpcResponse> callRestrictedFromJson(Functionality callingFunctionality, String rpcRequestJson) {
+        return decode(rpcRequestJson, rpcRequest -> AuthFunctionalitiesManager.callRestricted(callingFunctionality, rpcRequest));
+    }
+
+    public static final CompletableFuture<RpcResponse> callReservedFromJson(String rpcRequestJson) {
+        return decode(rpcRequestJson, AuthFunctionalitiesManager::callReserved);
+    }
+
+    public static final CompletableFuture<RpcResponse> callReservedFromJson(Functionality callingFunctionality, String rpcRequestJson) {
+        return decode(rpcRequestJson, rpcRequest -> AuthFunctionalitiesManager.callReserved(callingFunctionality, rpcRequest));
+    }
+
+    private static final CompletableFuture<RpcResponse> decode(String rpcRequestJson, Function<RpcRequest, CompletableFuture<RpcResponse>> call) {
+        RpcRequest rpcRequest;
+        try {
+            rpcRequest = RpcCodecs.get().decodeRequest(rpcRequestJson);
+        }
+        catch(RpcCodecException e) {
+            CompletableFuture<RpcResponse> response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+            return response;
+        }
+        return call.apply(rpcRequest);
+    }
+}
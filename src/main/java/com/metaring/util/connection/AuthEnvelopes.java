@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import com.metaring.framework.functionality.FunctionalityInfo;
+import com.metaring.framework.rpc.auth.AuthFunctionalitiesManager;
+import com.metaring.framework.type.DataRepresentation;
+
+final class AuthEnvelopes {
+
+    private static final String CALL_RESERVED = AuthFunctionalitiesManager.CALL_RESERVED.getFunctionalityFullyQualifiedName();
+    private static final String CALL_RESTRICTED = AuthFunctionalitiesManager.CALL_RESTRICTED.getFunctionalityFullyQualifiedName();
+
+    private final Supplier<DataRepresentation> getIdentificationData;
+    private final Supplier<DataRepresentation> getEnableData;
+
+    private volatile Supplier<?> credentialsVersion;
+    private volatile Object currentVersion;
+    private volatile Envelope reserved;
+    private volatile Envelope restricted;
+
+    AuthEnvelopes(Supplier<DataRepresentation> getIdentificationData, Supplier<DataRepresentation> getEnableData) {
+        this.getIdentificationData = getIdentificationData;
+        this.getEnableData = getEnableData;
+    }
+
+    final void credentialsVersion(Supplier<?> credentialsVersion) {
+        this.credentialsVersion = credentialsVersion;
+        this.currentVersion = credentialsVersion == null ? null : credentialsVersion.get();
+        invalidate();
+    }
+
+    final void invalidate() {
+        this.reserved = null;
+        this.restricted = null;
+    }
+
+    final DataRepresentation identificationData() {
+        return reserved().data;
+    }
+
+    final DataRepresentation enableData() {
+        return restricted().data;
+    }
+
+    final Envelope envelope(FunctionalityInfo functionalityInfo) {
+        return functionalityInfo.isRestricted() ? restricted() : functionalityInfo.isReserved() ? reserved() : null;
+    }
+
+    private final Envelope reserved() {
+        boolean cached = refreshIfStale();
+        Envelope reserved = cached ? this.reserved : null;
+        if(reserved == null) {
+            DataRepresentation identificationData = getIdentificationData.get();
+            StringBuilder prefix = SockJSFrameEncoder.appendQuoted(new StringBuilder("{\"name\":"), CALL_RESERVED).append(",\"param\":");
+            reserved = new Envelope(identificationData, prefix.toString(), ",\"data\":" + json(identificationData) + "}");
+            if(cached) {
+                this.reserved = reserved;
+            }
+        }
+        return reserved;
+    }
+
+    private final Envelope restricted() {
+        Envelope reserved = reserved();
+        boolean cached = credentialsVersion != null;
+        Envelope restricted = cached ? this.restricted : null;
+        if(restricted == null) {
+            DataRepresentation enableData = getEnableData.get();
+            StringBuilder prefix = SockJSFrameEncoder.appendQuoted(new StringBuilder(reserved.prefix).append("{\"name\":"), CALL_RESTRICTED).append(",\"param\":");
+            restricted = new Envelope(enableData, prefix.toString(), ",\"data\":" + json(enableData) + "}" + reserved.suffix);
+            if(cached) {
+                this.restricted = restricted;
+            }
+        }
+        return restricted;
+    }
+
+    private final boolean refreshIfStale() {
+        Supplier<?> credentialsVersion = this.credentialsVersion;
+        if(credentialsVersion == null) {
+            return false;
+        }
+        Object version = credentialsVersion.get();
+        if(!Objects.equals(version, currentVersion)) {
+            currentVersion = version;
+            invalidate();
+        }
+        return true;
+    }
+
+    private static final String json(DataRepresentation data) {
+        return data == null ? "null" : data.toJson();
+    }
+
+    static final class Envelope {
+
+        private final DataRepresentation data;
+        final String prefix;
+        final String suffix;
+        final String escapedPrefix;
+        final String escapedSuffix;
+
+        private Envelope(DataRepresentation data, String prefix, String suffix) {
+            this.data = data;
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.escapedPrefix = SockJSFrameEncoder.appendEscaped(new StringBuilder(prefix.length() + 16), prefix).toString();
+            this.escapedSuffix = SockJSFrameEncoder.appendEscaped(new StringBuilder(suffix.length() + 16), suffix).toString();
+        }
+    }
+}
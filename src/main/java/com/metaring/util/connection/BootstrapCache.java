@@ -0,0 +1,94 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public final class BootstrapCache {
+
+    private static final Map<String, Entry<?>> ENTRIES = new ConcurrentHashMap<>();
+
+    private static volatile long ttlNanos = TimeUnit.MINUTES.toNanos(5);
+
+    private BootstrapCache() {
+    }
+
+    public static final void ttl(long ttl, TimeUnit unit) {
+        ttlNanos = unit.toNanos(ttl);
+    }
+
+    public static final void invalidate(String key) {
+        ENTRIES.remove(key);
+    }
+
+    public static final void clear() {
+        ENTRIES.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    static final <V> CompletableFuture<V> get(String key, Supplier<V> loader) {
+        while(true) {
+            Entry<?> current = ENTRIES.get(key);
+            if(current != null && current.isUsable()) {
+                return (CompletableFuture<V>) current.value;
+            }
+            Entry<V> loading = new Entry<>();
+            boolean installed = current == null ? ENTRIES.putIfAbsent(key, loading) == null : ENTRIES.replace(key, current, loading);
+            if(!installed) {
+                continue;
+            }
+            CompletableFuture.supplyAsync(loader, CallbackExecutors.bootstrap()).whenComplete((value, error) -> {
+                if(error != null) {
+                    ENTRIES.remove(key, loading);
+                    loading.value.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                    return;
+                }
+                loading.loadedAt = System.nanoTime();
+                loading.value.complete(value);
+            });
+            return loading.value;
+        }
+    }
+
+    static final <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        }
+        catch(CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final CompletableFuture<V> value = new CompletableFuture<>();
+        private volatile long loadedAt;
+
+        private final boolean isUsable() {
+            if(!value.isDone()) {
+                return true;
+            }
+            return !value.isCompletedExceptionally() && System.nanoTime() - loadedAt < ttlNanos;
+        }
+    }
+}
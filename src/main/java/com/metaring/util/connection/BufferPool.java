@@ -0,0 +1,122 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class BufferPool {
+
+    static final BufferPool SHARED = new BufferPool(16 * 1024, 64);
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final Queue<ByteBuffer> pooled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledCount = new AtomicInteger();
+    private final AtomicInteger leasedCount = new AtomicInteger();
+    private final AtomicLong allocatedCount = new AtomicLong();
+    private final AtomicLong oversizedCount = new AtomicLong();
+
+    private BufferPool(int bufferSize, int maxPooled) {
+        if(bufferSize <= 0 || maxPooled < 0) {
+            throw new IllegalArgumentException("Invalid buffer pool: " + maxPooled + " buffers of " + bufferSize + " bytes");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    public static final BufferPool shared() {
+        return SHARED;
+    }
+
+    public static final BufferPool create(int bufferSize, int maxPooled) {
+        return new BufferPool(bufferSize, maxPooled);
+    }
+
+    public final int getBufferSize() {
+        return bufferSize;
+    }
+
+    public final int getPooledCount() {
+        return pooledCount.get();
+    }
+
+    public final int getLeasedCount() {
+        return leasedCount.get();
+    }
+
+    public final long getAllocatedCount() {
+        return allocatedCount.get();
+    }
+
+    public final long getOversizedCount() {
+        return oversizedCount.get();
+    }
+
+    final Lease acquire(int capacity) {
+        ByteBuffer buffer;
+        if(capacity > bufferSize) {
+            oversizedCount.incrementAndGet();
+            buffer = ByteBuffer.allocate(capacity);
+        } else if((buffer = pooled.poll()) != null) {
+            pooledCount.decrementAndGet();
+            buffer.clear();
+        } else {
+            allocatedCount.incrementAndGet();
+            buffer = ByteBuffer.allocate(bufferSize);
+        }
+        leasedCount.incrementAndGet();
+        return new Lease(buffer);
+    }
+
+    private final void recycle(ByteBuffer buffer) {
+        leasedCount.decrementAndGet();
+        if(buffer.capacity() != bufferSize) {
+            return;
+        }
+        if(pooledCount.incrementAndGet() > maxPooled) {
+            pooledCount.decrementAndGet();
+            return;
+        }
+        pooled.offer(buffer);
+    }
+
+    final class Lease implements AutoCloseable {
+
+        final ByteBuffer buffer;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        final void release() {
+            if(released.compareAndSet(false, true)) {
+                recycle(buffer);
+            }
+        }
+
+        @Override
+        public final void close() {
+            release();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import com.metaring.framework.type.DataRepresentation;
+
+final class CallKey {
+
+    final String functionalityName;
+    final String param;
+    private final int hash;
+
+    private CallKey(String functionalityName, String param) {
+        this.functionalityName = functionalityName;
+        this.param = param;
+        this.hash = 31 * functionalityName.hashCode() + (param == null ? 0 : param.hashCode());
+    }
+
+    static final CallKey of(String functionalityName, DataRepresentation param) {
+        return new CallKey(functionalityName, param == null ? null : JsonFields.canonicalize(param.toJson()));
+    }
+
+    final long weight() {
+        return 2L * (functionalityName.length() + (param == null ? 0 : param.length()));
+    }
+
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public final boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof CallKey)) {
+            return false;
+        }
+        CallKey other = (CallKey) obj;
+        return hash == other.hash && functionalityName.equals(other.functionalityName) && (param == null ? other.param == null : param.equals(other.param));
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public final class CallbackExecutors {
+
+    private static final Executor CALLER_RUNS = Runnable::run;
+    private static final Consumer<Throwable> THREAD_HANDLER = CallbackExecutors::uncaughtByThread;
+
+    private static volatile Consumer<Throwable> onUncaughtError = THREAD_HANDLER;
+
+    private CallbackExecutors() {
+    }
+
+    public static final Executor shared() {
+        return Shared.INSTANCE;
+    }
+
+    public static final Executor callerRuns() {
+        return CALLER_RUNS;
+    }
+
+    public static final ExecutorService fixed(int threads) {
+        return Executors.newFixedThreadPool(threads, daemonThreads("metaring-callback"));
+    }
+
+    public static final ExecutorService virtual() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch(Exception e) {
+            return Executors.newCachedThreadPool(daemonThreads("metaring-callback"));
+        }
+    }
+
+    public static final StripedExecutor striped(Executor executor, int stripes) {
+        return new StripedExecutor(executor, stripes);
+    }
+
+    public static final void onUncaughtError(Consumer<Throwable> onUncaughtError) {
+        CallbackExecutors.onUncaughtError = onUncaughtError == null ? THREAD_HANDLER : onUncaughtError;
+    }
+
+    static final void uncaught(Throwable error) {
+        try {
+            onUncaughtError.accept(error);
+        }
+        catch(Throwable e) {
+            uncaughtByThread(e);
+        }
+    }
+
+    private static final void uncaughtByThread(Throwable error) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+    }
+
+    static final Executor bootstrap() {
+        return Bootstrap.INSTANCE;
+    }
+
+    static final ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Bootstrap {
+        private static final Executor INSTANCE = Executors.newCachedThreadPool(daemonThreads("metaring-bootstrap"));
+    }
+
+    private static final class Shared {
+        private static final Executor INSTANCE = fixed(Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.zip.Deflater;
+
+public final class CompressionOptions {
+
+    private static final int DEFAULT_THRESHOLD = 1024;
+
+    private volatile int level = Deflater.DEFAULT_COMPRESSION;
+    private volatile int threshold = DEFAULT_THRESHOLD;
+    private volatile boolean clientContextTakeover = true;
+    private volatile boolean serverContextTakeover = true;
+
+    private CompressionOptions() {
+    }
+
+    public static final CompressionOptions deflate() {
+        return new CompressionOptions();
+    }
+
+    public final CompressionOptions level(int level) {
+        if(level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid deflate level: " + level);
+        }
+        this.level = level;
+        return this;
+    }
+
+    public final CompressionOptions threshold(int minimumMessageBytes) {
+        this.threshold = Math.max(0, minimumMessageBytes);
+        return this;
+    }
+
+    public final CompressionOptions clientContextTakeover(boolean clientContextTakeover) {
+        this.clientContextTakeover = clientContextTakeover;
+        return this;
+    }
+
+    public final CompressionOptions serverContextTakeover(boolean serverContextTakeover) {
+        this.serverContextTakeover = serverContextTakeover;
+        return this;
+    }
+
+    final MeteredDeflateExtension newExtension(CompressionStats stats) {
+        return new MeteredDeflateExtension(level, threshold, clientContextTakeover, serverContextTakeover, stats);
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class CompressionStats {
+
+    private final AtomicLong deflatedMessages = new AtomicLong();
+    private final AtomicLong uncompressedMessages = new AtomicLong();
+    private final AtomicLong bytesBeforeDeflate = new AtomicLong();
+    private final AtomicLong bytesAfterDeflate = new AtomicLong();
+    private final AtomicLong deflateNanos = new AtomicLong();
+    private final AtomicLong inflatedMessages = new AtomicLong();
+    private final AtomicLong bytesBeforeInflate = new AtomicLong();
+    private final AtomicLong bytesAfterInflate = new AtomicLong();
+    private final AtomicLong inflateNanos = new AtomicLong();
+
+    CompressionStats() {
+    }
+
+    final void deflated(int before, int after, long cpuNanos) {
+        if(after >= before) {
+            uncompressedMessages.incrementAndGet();
+            return;
+        }
+        deflatedMessages.incrementAndGet();
+        bytesBeforeDeflate.addAndGet(before);
+        bytesAfterDeflate.addAndGet(after);
+        deflateNanos.addAndGet(cpuNanos);
+    }
+
+    final void inflated(int before, int after, long cpuNanos) {
+        if(after <= before) {
+            return;
+        }
+        inflatedMessages.incrementAndGet();
+        bytesBeforeInflate.addAndGet(before);
+        bytesAfterInflate.addAndGet(after);
+        inflateNanos.addAndGet(cpuNanos);
+    }
+
+    public final long getDeflatedMessages() {
+        return deflatedMessages.get();
+    }
+
+    public final long getUncompressedMessages() {
+        return uncompressedMessages.get();
+    }
+
+    public final long getInflatedMessages() {
+        return inflatedMessages.get();
+    }
+
+    public final double getOutboundRatio() {
+        long before = bytesBeforeDeflate.get();
+        return before == 0 ? 1.0 : (double) bytesAfterDeflate.get() / before;
+    }
+
+    public final double getInboundRatio() {
+        long after = bytesAfterInflate.get();
+        return after == 0 ? 1.0 : (double) bytesBeforeInflate.get() / after;
+    }
+
+    public final long getBytesSaved() {
+        return bytesBeforeDeflate.get() - bytesAfterDeflate.get() + bytesAfterInflate.get() - bytesBeforeInflate.get();
+    }
+
+    public final long getDeflateCpuNanos() {
+        return deflateNanos.get();
+    }
+
+    public final long getInflateCpuNanos() {
+        return inflateNanos.get();
+    }
+
+    @Override
+    public final String toString() {
+        return "CompressionStats [outbound=" + getOutboundRatio() + " over " + getDeflatedMessages() + " messages in " + getDeflateCpuNanos() / 1_000_000 + "ms, inbound=" + getInboundRatio() + " over " + getInflatedMessages() + " messages in " + getInflateCpuNanos() / 1_000_000 + "ms]";
+    }
+}
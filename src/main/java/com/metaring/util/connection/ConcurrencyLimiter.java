@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public final class ConcurrencyLimiter {
+
+    private static final CompletableFuture<Void> GRANTED = CompletableFuture.completedFuture(null);
+
+    private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private final int maxQueued;
+    private final boolean adaptive;
+    private final double minLimit;
+    private final double maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+
+    private ConcurrencyLimiter(int limit, int minLimit, int maxLimit, int maxQueued, boolean adaptive, long latencyThresholdNanos, double backoffRatio) {
+        if(limit <= 0 || minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits: " + limit + " in [" + minLimit + ", " + maxLimit + "]");
+        }
+        this.limit = limit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueued = maxQueued;
+        this.adaptive = adaptive;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+    }
+
+    public static final ConcurrencyLimiter fixed(int limit) {
+        return fixed(limit, Integer.MAX_VALUE);
+    }
+
+    public static final ConcurrencyLimiter fixed(int limit, int maxQueued) {
+        return new ConcurrencyLimiter(limit, limit, limit, maxQueued, false, Long.MAX_VALUE, 1.0);
+    }
+
+    public static final ConcurrencyLimiter adaptive(int initialLimit, int minLimit, int maxLimit, long latencyThreshold, TimeUnit unit) {
+        return new ConcurrencyLimiter(initialLimit, minLimit, maxLimit, Integer.MAX_VALUE, true, unit.toNanos(latencyThreshold), 0.9);
+    }
+
+    public final synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public final synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public final synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    public final CompletableFuture<Void> acquire() {
+        synchronized(this) {
+            if(waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                return GRANTED;
+            }
+            if(waiters.size() >= maxQueued) {
+                CompletableFuture<Void> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(new RejectedExecutionException("Concurrency limit of " + (int) limit + " reached with " + waiters.size() + " calls queued"));
+                return rejected;
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            waiter.whenComplete((granted, error) -> {
+                if(error != null) {
+                    withdraw(waiter);
+                }
+            });
+            return waiter;
+        }
+    }
+
+    public final void release() {
+        release(-1L, false);
+    }
+
+    public final void release(long latencyNanos, boolean dropped) {
+        synchronized(this) {
+            if(adaptive && latencyNanos >= 0) {
+                if(dropped || latencyNanos > latencyThresholdNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                } else if(inFlight >= (int) limit) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+            inFlight--;
+        }
+        grantWaiters();
+    }
+
+    private final void grantWaiters() {
+        while(true) {
+            CompletableFuture<Void> next;
+            synchronized(this) {
+                if(waiters.isEmpty() || inFlight >= (int) limit) {
+                    return;
+                }
+                next = waiters.poll();
+                inFlight++;
+            }
+            if(!next.complete(null)) {
+                synchronized(this) {
+                    inFlight--;
+                }
+            }
+        }
+    }
+
+    private final synchronized void withdraw(CompletableFuture<Void> waiter) {
+        waiters.remove(waiter);
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.io.IOException;
+
+public final class ConnectionLostException extends IOException {
+
+    private static final long serialVersionUID = 4337150968253812262L;
+
+    private final long callId;
+    private final String functionalityName;
+
+    ConnectionLostException(long callId, String functionalityName, Throwable cause) {
+        super("Connection lost while call " + callId + " to " + functionalityName + " was in flight", cause);
+        this.callId = callId;
+        this.functionalityName = functionalityName;
+    }
+
+    public final long getCallId() {
+        return callId;
+    }
+
+    public final String getFunctionalityName() {
+        return functionalityName;
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+final class HashedWheelTimer {
+
+    static final HashedWheelTimer SHARED = new HashedWheelTimer("metaring-timer", 10, TimeUnit.MILLISECONDS, 512);
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> additions = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancellations = new ConcurrentLinkedQueue<>();
+    private final long startTime;
+    private long tick;
+
+    HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        int wheelSize = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1)) << 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[wheelSize];
+        for(int i = 0; i < wheelSize; i++) {
+            this.wheel[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.startTime = System.nanoTime();
+        Thread worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    final Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadline = System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay));
+        Timeout timeout = new Timeout(this, task, deadline);
+        additions.add(timeout);
+        return timeout;
+    }
+
+    private final void run() {
+        while(true) {
+            long deadline = waitForNextTick();
+            processCancellations();
+            transferAdditions();
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    private final long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        long now;
+        while((now = System.nanoTime() - startTime) < deadline) {
+            LockSupport.parkNanos(deadline - now);
+        }
+        return now;
+    }
+
+    private final void processCancellations() {
+        Timeout timeout;
+        while((timeout = cancellations.poll()) != null) {
+            if(timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private final void transferAdditions() {
+        for(int i = 0; i < 100_000; i++) {
+            Timeout timeout = additions.poll();
+            if(timeout == null) {
+                return;
+            }
+            if(timeout.state.get() != Timeout.PENDING) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    static final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        final boolean cancel() {
+            if(!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            timer.cancellations.add(this);
+            return true;
+        }
+
+        final boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private final void expire() {
+            if(!state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            }
+            catch(Throwable e) {
+                CallbackExecutors.uncaught(e);
+            }
+        }
+    }
+
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        private final void add(Timeout timeout) {
+            timeout.bucket = this;
+            if(head == null) {
+                head = tail = timeout;
+                return;
+            }
+            tail.next = timeout;
+            timeout.prev = tail;
+            tail = timeout;
+        }
+
+        private final void expire(long deadline) {
+            Timeout timeout = head;
+            while(timeout != null) {
+                Timeout next = timeout.next;
+                if(timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if(timeout.deadline <= deadline) {
+                        timeout.expire();
+                    }
+                } else if(timeout.state.get() == Timeout.CANCELLED) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private final void remove(Timeout timeout) {
+            if(timeout.bucket != this) {
+                return;
+            }
+            if(timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            }
+            if(timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if(timeout == head) {
+                head = timeout.next;
+            }
+            if(timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
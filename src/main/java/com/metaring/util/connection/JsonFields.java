@@ -0,0 +1,405 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+final class JsonFields {
+
+    private final String json;
+
+    private String[] names = new String[8];
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int size;
+
+    private JsonFields(String json) {
+        this.json = json;
+    }
+
+    static final JsonFields scan(String json) {
+        return scan(json, 0, json.length());
+    }
+
+    static final JsonFields scan(String json, int from, int to) {
+        JsonFields fields = new JsonFields(json);
+        int i = skipWhitespace(json, from, to);
+        if(i >= to || json.charAt(i) != '{') {
+            return fields;
+        }
+        i = skipWhitespace(json, i + 1, to);
+        StringBuilder buffer = new StringBuilder();
+        while(i < to && json.charAt(i) != '}') {
+            if(json.charAt(i) != '"') {
+                throw malformed(json, i, "field name");
+            }
+            buffer.setLength(0);
+            i = readString(json, i + 1, to, buffer);
+            i = skipWhitespace(json, i, to);
+            if(i >= to || json.charAt(i) != ':') {
+                throw malformed(json, i, "':'");
+            }
+            int start = skipWhitespace(json, i + 1, to);
+            int end = value(json, start, to);
+            fields.add(buffer.toString(), start, end);
+            i = separator(json, end, to, '}');
+        }
+        if(i >= to) {
+            throw malformed(json, i, "'}'");
+        }
+        return fields;
+    }
+
+    static final String canonicalize(String json) {
+        StringBuilder canonical = new StringBuilder(json.length());
+        appendCanonical(json, 0, json.length(), canonical);
+        return canonical.toString();
+    }
+
+    private static final void appendCanonical(String json, int from, int to, StringBuilder canonical) {
+        int i = skipWhitespace(json, from, to);
+        if(i >= to) {
+            return;
+        }
+        char c = json.charAt(i);
+        if(c == '{') {
+            appendCanonicalObject(json, i + 1, to, canonical);
+        } else if(c == '[') {
+            appendCanonicalArray(json, i + 1, to, canonical);
+        } else if(c == '"') {
+            StringBuilder buffer = new StringBuilder();
+            readString(json, i + 1, to, buffer);
+            SockJSFrameEncoder.appendQuoted(canonical, buffer);
+        } else {
+            canonical.append(json, i, skipValue(json, i, to));
+        }
+    }
+
+    private static final void appendCanonicalObject(String json, int i, int to, StringBuilder canonical) {
+        Map<String, int[]> fields = new TreeMap<>();
+        i = skipWhitespace(json, i, to);
+        while(i < to && json.charAt(i) != '}') {
+            if(json.charAt(i) != '"') {
+                throw malformed(json, i, "field name");
+            }
+            StringBuilder name = new StringBuilder();
+            i = skipWhitespace(json, readString(json, i + 1, to, name), to);
+            if(i >= to || json.charAt(i) != ':') {
+                throw malformed(json, i, "':'");
+            }
+            int start = skipWhitespace(json, i + 1, to);
+            int end = value(json, start, to);
+            fields.put(name.toString(), new int[] { start, end });
+            i = separator(json, end, to, '}');
+        }
+        if(i >= to) {
+            throw malformed(json, i, "'}'");
+        }
+        canonical.append('{');
+        boolean first = true;
+        for(Map.Entry<String, int[]> field : fields.entrySet()) {
+            if(!first) {
+                canonical.append(',');
+            }
+            first = false;
+            SockJSFrameEncoder.appendQuoted(canonical, field.getKey());
+            canonical.append(':');
+            appendCanonical(json, field.getValue()[0], field.getValue()[1], canonical);
+        }
+        canonical.append('}');
+    }
+
+    private static final void appendCanonicalArray(String json, int i, int to, StringBuilder canonical) {
+        canonical.append('[');
+        i = skipWhitespace(json, i, to);
+        boolean first = true;
+        while(i < to && json.charAt(i) != ']') {
+            int end = value(json, i, to);
+            if(!first) {
+                canonical.append(',');
+            }
+            first = false;
+            appendCanonical(json, i, end, canonical);
+            i = separator(json, end, to, ']');
+        }
+        if(i >= to) {
+            throw malformed(json, i, "']'");
+        }
+        canonical.append(']');
+    }
+
+    final boolean has(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    final boolean isNull(String name) {
+        int index = indexOf(name);
+        return index < 0 || json.startsWith("null", starts[index]);
+    }
+
+    final String raw(String name) {
+        int index = indexOf(name);
+        if(index < 0 || json.startsWith("null", starts[index])) {
+            return null;
+        }
+        return json.substring(starts[index], ends[index]);
+    }
+
+    final int start(String name) {
+        int index = indexOf(name);
+        return index < 0 || json.startsWith("null", starts[index]) ? -1 : starts[index];
+    }
+
+    final int end(String name) {
+        int index = indexOf(name);
+        return index < 0 || json.startsWith("null", starts[index]) ? -1 : ends[index];
+    }
+
+    final JsonFields object(String name) {
+        int index = indexOf(name);
+        if(index < 0) {
+            return new JsonFields(json);
+        }
+        return scan(json, starts[index], ends[index]);
+    }
+
+    final long getLong(String name, long defaultValue) {
+        int index = indexOf(name);
+        if(index < 0 || json.startsWith("null", starts[index])) {
+            return defaultValue;
+        }
+        int i = starts[index];
+        int end = ends[index];
+        if(i < end && json.charAt(i) == '"') {
+            i++;
+            end--;
+        }
+        boolean negative = i < end && json.charAt(i) == '-';
+        int digits = negative ? i + 1 : i;
+        if(digits < end && end - digits <= 18) {
+            long value = 0;
+            int j = digits;
+            for(; j < end; j++) {
+                char c = json.charAt(j);
+                if(c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if(j == end) {
+                return negative ? -value : value;
+            }
+        }
+        try {
+            return new BigDecimal(json.substring(i, end)).longValueExact();
+        }
+        catch(NumberFormatException | ArithmeticException e) {
+            throw new NumberFormatException("JSON: " + name + " is not an integral number: " + json.substring(starts[index], ends[index]));
+        }
+    }
+
+    final String getString(String name) {
+        int index = indexOf(name);
+        if(index < 0) {
+            return null;
+        }
+        int start = starts[index];
+        if(json.charAt(start) != '"') {
+            return json.startsWith("null", start) ? null : json.substring(start, ends[index]);
+        }
+        StringBuilder buffer = new StringBuilder(ends[index] - start);
+        readString(json, start + 1, ends[index], buffer);
+        return buffer.toString();
+    }
+
+    private final void add(String name, int start, int end) {
+        if(size == names.length) {
+            names = Arrays.copyOf(names, size << 1);
+            starts = Arrays.copyOf(starts, size << 1);
+            ends = Arrays.copyOf(ends, size << 1);
+        }
+        names[size] = name;
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    private final int indexOf(String name) {
+        for(int i = 0; i < size; i++) {
+            if(names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static final int readString(String json, int i, int to, StringBuilder buffer) {
+        int start = i;
+        while(i < to) {
+            char c = json.charAt(i);
+            if(c == '"') {
+                buffer.append(json, start, i);
+                return i + 1;
+            }
+            if(c != '\\') {
+                i++;
+                continue;
+            }
+            buffer.append(json, start, i);
+            if(i + 1 >= to) {
+                break;
+            }
+            char escaped = json.charAt(i + 1);
+            switch(escaped) {
+                case 'b':
+                    buffer.append('\b');
+                    break;
+                case 'f':
+                    buffer.append('\f');
+                    break;
+                case 'n':
+                    buffer.append('\n');
+                    break;
+                case 'r':
+                    buffer.append('\r');
+                    break;
+                case 't':
+                    buffer.append('\t');
+                    break;
+                case 'u':
+                    if(i + 6 > to) {
+                        throw malformed(json, i, "unicode escape");
+                    }
+                    buffer.append((char) hex(json, i + 2));
+                    i += 4;
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    buffer.append(escaped);
+                    break;
+                default:
+                    throw malformed(json, i, "escape sequence");
+            }
+            i += 2;
+            start = i;
+        }
+        throw malformed(json, i, "'\"'");
+    }
+
+    private static final int hex(String json, int i) {
+        int value = 0;
+        for(int end = i + 4; i < end; i++) {
+            int digit = Character.digit(json.charAt(i), 16);
+            if(digit < 0) {
+                throw malformed(json, i, "hex digit");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    static final int skipValue(String json, int i, int to) {
+        if(i >= to) {
+            return i;
+        }
+        char c = json.charAt(i);
+        if(c == '"') {
+            return skipString(json, i + 1, to);
+        }
+        if(c != '[' && c != '{') {
+            while(i < to && !isDelimiter(json.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+        int depth = 0;
+        while(i < to) {
+            c = json.charAt(i);
+            if(c == '"') {
+                i = skipString(json, i + 1, to);
+                continue;
+            }
+            if(c == '[' || c == '{') {
+                depth++;
+            } else if(c == ']' || c == '}') {
+                depth--;
+                if(depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        throw malformed(json, i, "end of value");
+    }
+
+    private static final int value(String json, int start, int to) {
+        int end = skipValue(json, start, to);
+        if(end == start) {
+            throw malformed(json, start, "value");
+        }
+        return end;
+    }
+
+    private static final int separator(String json, int i, int to, char close) {
+        i = skipWhitespace(json, i, to);
+        if(i < to && json.charAt(i) == ',') {
+            i = skipWhitespace(json, i + 1, to);
+            if(i < to && json.charAt(i) != close) {
+                return i;
+            }
+            throw malformed(json, i, "value");
+        }
+        if(i < to && json.charAt(i) == close) {
+            return i;
+        }
+        throw malformed(json, i, "',' or '" + close + "'");
+    }
+
+    private static final boolean isDelimiter(char c) {
+        return c == ',' || c == '}' || c == ']' || Character.isWhitespace(c);
+    }
+
+    static final int skipString(String json, int i, int to) {
+        while(i < to) {
+            char c = json.charAt(i);
+            if(c == '\\') {
+                i += 2;
+                continue;
+            }
+            if(c == '"') {
+                return i + 1;
+            }
+            i++;
+        }
+        throw malformed(json, to, "'\"'");
+    }
+
+    static final int skipWhitespace(String json, int i, int to) {
+        while(i < to && Character.isWhitespace(json.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final IllegalArgumentException malformed(String json, int position, String expected) {
+        return new IllegalArgumentException("JSON: expected " + expected + " at " + position + " in " + json);
+    }
+}
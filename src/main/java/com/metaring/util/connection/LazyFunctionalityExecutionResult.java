@@ -0,0 +1,145 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.nio.CharBuffer;
+
+import com.metaring.framework.Tools;
+import com.metaring.framework.functionality.FunctionalityExecutionResult;
+import com.metaring.framework.type.DataRepresentation;
+
+public final class LazyFunctionalityExecutionResult {
+
+    private static final String SUCCESS = "SUCCESS";
+
+    private final String source;
+    private final int start;
+    private final int end;
+    private final String response;
+    private final int resultStart;
+    private final int resultEnd;
+
+    private volatile DataRepresentation result;
+    private volatile FunctionalityExecutionResult materialized;
+
+    private LazyFunctionalityExecutionResult(String source, int start, int end, String response, int resultStart, int resultEnd) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.response = response;
+        this.resultStart = resultStart;
+        this.resultEnd = resultEnd;
+    }
+
+    static final LazyFunctionalityExecutionResult ofResult(String source, int start, int end) {
+        JsonFields fields = JsonFields.scan(source, start, end);
+        return new LazyFunctionalityExecutionResult(source, start, end, fields.getString("response"), fields.start("result"), fields.end("result"));
+    }
+
+    static final LazyFunctionalityExecutionResult ofPayload(String source, int start, int end) {
+        return new LazyFunctionalityExecutionResult(source, -1, -1, SUCCESS, start, end);
+    }
+
+    static final LazyFunctionalityExecutionResult ofValue(DataRepresentation value) {
+        LazyFunctionalityExecutionResult result = new LazyFunctionalityExecutionResult(null, -1, -1, SUCCESS, -1, -1);
+        result.result = value;
+        return result;
+    }
+
+    static final LazyFunctionalityExecutionResult ofMaterialized(FunctionalityExecutionResult materialized) {
+        if(materialized == null) {
+            return null;
+        }
+        String source = materialized.toJson();
+        LazyFunctionalityExecutionResult result = ofResult(source, 0, source.length());
+        result.materialized = materialized;
+        return result;
+    }
+
+    final LazyFunctionalityExecutionResult copy() {
+        if(source != null) {
+            return new LazyFunctionalityExecutionResult(source, start, end, response, resultStart, resultEnd);
+        }
+        DataRepresentation result = this.result;
+        if(result == null) {
+            return new LazyFunctionalityExecutionResult(null, -1, -1, response, -1, -1);
+        }
+        String json = result.toJson();
+        return new LazyFunctionalityExecutionResult(json, -1, -1, response, 0, json.length());
+    }
+
+    public final String getResponse() {
+        return response;
+    }
+
+    public final boolean isSuccessful() {
+        return SUCCESS.equals(response);
+    }
+
+    public final boolean hasResult() {
+        return resultStart >= 0 || result != null;
+    }
+
+    public final CharSequence rawJson() {
+        if(resultStart < 0) {
+            return result == null ? null : result.toJson();
+        }
+        return CharBuffer.wrap(source, resultStart, resultEnd);
+    }
+
+    public final DataRepresentation getResult() {
+        DataRepresentation result = this.result;
+        if(result == null && resultStart >= 0) {
+            this.result = result = Tools.FACTORY_DATA_REPRESENTATION.fromJson(source.substring(resultStart, resultEnd));
+        }
+        return result;
+    }
+
+    public final <T> T getResult(Class<T> type) {
+        DataRepresentation result = getResult();
+        return result == null ? null : result.as(type);
+    }
+
+    public final FunctionalityExecutionResult materialize() {
+        FunctionalityExecutionResult materialized = this.materialized;
+        if(materialized != null) {
+            return materialized;
+        }
+        if(start >= 0) {
+            materialized = Tools.FACTORY_DATA_REPRESENTATION.fromJson(source.substring(start, end)).as(FunctionalityExecutionResult.class);
+        } else {
+            materialized = Tools.FACTORY_DATA_REPRESENTATION.create()
+                    .add("response", response)
+                    .add("result", getResult())
+                    .as(FunctionalityExecutionResult.class);
+        }
+        return this.materialized = materialized;
+    }
+
+    final long weight() {
+        if(source != null) {
+            return 2L * source.length();
+        }
+        DataRepresentation result = this.result;
+        return result == null ? 0L : 2L * result.toJson().length();
+    }
+
+    @Override
+    public final String toString() {
+        return start >= 0 ? source.substring(start, end) : materialize().toJson();
+    }
+}
@@ -17,20 +17,38 @@
 package com.metaring.util.connection;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.net.URLConnection;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import com.metaring.framework.CoreType;
 import com.metaring.framework.Tools;
 import com.metaring.framework.functionality.FunctionalityExecutionResult;
 import com.metaring.framework.functionality.FunctionalityInfo;
+import com.metaring.framework.rpc.RpcCodec;
+import com.metaring.framework.rpc.RpcCodecs;
 import com.metaring.framework.rpc.RpcRequest;
 import com.metaring.framework.rpc.RpcResponse;
 import com.metaring.framework.rpc.auth.AuthFunctionalitiesManager;
@@ -43,60 +61,149 @@ public final class MetaRingCommunicationProtocol {
     private static final String CALL_RESERVED = AuthFunctionalitiesManager.CALL_RESERVED.getFunctionalityFullyQualifiedName();
     private static final String CALL_RESTRICTED = AuthFunctionalitiesManager.CALL_RESTRICTED.getFunctionalityFullyQualifiedName();
 
-    private final SockJSClient sockJSClient;
-    private final Supplier<DataRepresentation> getIdentificationData;
-    private final Supplier<DataRepresentation> getEnableData;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 60_000L;
+    private static final int DEFAULT_TOPIC_STRIPES = 64;
+    private static final int DEFAULT_BOOTSTRAP_TIMEOUT_MILLIS = 10_000;
+    private static final long DEFAULT_CACHE_WEIGHT = 32L << 20;
 
-    private final Map<Long, CompletableFuture<FunctionalityExecutionResult>> sockJSCalls = new HashMap<>();
-    private final Map<String, Consumer<FunctionalityExecutionResult>> permanentSockJSCallbacks = new HashMap<>();
+    private final SockJSClient sockJSClient;
+    private final AuthEnvelopes authEnvelopes;
+
+    private final PendingCallTable<PendingCall> sockJSCalls = new PendingCallTable<>();
+    private final TopicRegistry permanentSockJSCallbacks = new TopicRegistry();
+    private final AtomicLong lastCallId = new AtomicLong(System.currentTimeMillis());
+    private final AtomicBoolean connected = new AtomicBoolean();
+    private final AtomicBoolean opening = new AtomicBoolean();
+    private final AtomicBoolean reconnectScheduled = new AtomicBoolean();
+    private final AtomicInteger reconnectAttempts = new AtomicInteger();
+    private final Queue<PendingCall> replayableCalls = new ConcurrentLinkedQueue<>();
+
+    private final Map<String, Long> functionalityTimeouts = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrencyLimiter> functionalityLimiters = new ConcurrentHashMap<>();
+    private final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+    private final Map<String, Long> cacheTtls = new ConcurrentHashMap<>();
+    private final Set<String> deduplicated = ConcurrentHashMap.newKeySet();
+    private final Map<CallKey, CompletableFuture<LazyFunctionalityExecutionResult>> sharedCalls = new ConcurrentHashMap<>();
 
     private Runnable onConnect;
     private Consumer<Throwable> onDisconnect;
+    private volatile long defaultTimeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private volatile Executor callbackExecutor = CallbackExecutors.shared();
+    private volatile StripedExecutor topicExecutor = CallbackExecutors.striped(CallbackExecutors.shared(), DEFAULT_TOPIC_STRIPES);
+    private volatile ReconnectPolicy reconnectPolicy;
+    private volatile Predicate<FunctionalityInfo> replayPolicy = functionalityInfo -> false;
+    private volatile boolean disconnectRequested;
+    private Runnable onReconnect;
+    private volatile CompletableFuture<MetaRingCommunicationProtocol> connecting;
+    private volatile ConcurrencyLimiter concurrencyLimiter;
+    private volatile ResponseCache responseCache;
 
     public final String IP;
 
-    private MetaRingCommunicationProtocol(String url, String sockResource, String ipResource, Supplier<DataRepresentation> getIdentificationData, Supplier<DataRepresentation> getEnableData) {
-        if(!url.endsWith("/")) {
-            url += "/";
-        }
-        String ip = null;
-        if(!StringUtil.isNullOrEmpty(ipResource)) {
-            ip = retrieveClientIp(url, ipResource);
-        }
+    private MetaRingCommunicationProtocol(String url, String sockResource, String ipResource, Supplier<DataRepresentation> getIdentificationData, Supplier<DataRepresentation> getEnableData, Transport transport) {
+        this(BootstrapCache.join(clientIp(normalize(url), ipResource, DEFAULT_BOOTSTRAP_TIMEOUT_MILLIS)), SockJSClient.create(normalize(url) + sockResource, transport), getIdentificationData, getEnableData);
+    }
+
+    private MetaRingCommunicationProtocol(String ip, SockJSClient sockJSClient, Supplier<DataRepresentation> getIdentificationData, Supplier<DataRepresentation> getEnableData) {
         this.IP = ip;
-        this.sockJSClient = SockJSClient.create(url + sockResource).onOpen(this::connected).onMessage(this::consumeResponse).onError(this::onError);
-        this.getIdentificationData = getIdentificationData;
-        this.getEnableData = getEnableData;
+        this.sockJSClient = sockJSClient.onOpen(this::connected).onMessage(this::consumeResponse).onError(this::onError).onClose(this::onClose).onOutboxDrop(this::dropped);
+        this.authEnvelopes = new AuthEnvelopes(getIdentificationData, getEnableData);
+    }
+
+    private static final String normalize(String url) {
+        return url.endsWith("/") ? url : url + "/";
     }
 
-    private final String retrieveClientIp(String urlString, String ipResource) {
-        String ip = ipResource;
+    private static final CompletableFuture<String> clientIp(String urlString, String ipResource, int timeoutMillis) {
+        if(StringUtil.isNullOrEmpty(ipResource)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return BootstrapCache.get(urlString + ipResource, () -> retrieveClientIp(urlString, ipResource, timeoutMillis)).exceptionally(e -> ipResource);
+    }
+
+    private static final String retrieveClientIp(String urlString, String ipResource, int timeoutMillis) {
         try {
             String connection = urlString + ipResource;
             URL url = new URL(connection);
             URLConnection urlConnection = url.openConnection();
+            urlConnection.setConnectTimeout(timeoutMillis);
+            urlConnection.setReadTimeout(timeoutMillis);
             urlConnection.connect();
             try(InputStream inputStream = urlConnection.getInputStream()) {
                 try(InputStreamReader inputStreamReader = new InputStreamReader(inputStream)) {
                     try(BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
-                        ip = bufferedReader.readLine().trim();
+                        return bufferedReader.readLine().trim();
                     }
                 }
             }
         } catch(Exception e) {
+            throw new RuntimeException(e);
         }
-        return ip;
     }
 
     public final MetaRingCommunicationProtocol connect() {
+        this.disconnectRequested = false;
+        this.reconnectAttempts.set(0);
+        this.opening.set(true);
         this.sockJSClient.connect();
         return this;
     }
 
+    public final CompletableFuture<MetaRingCommunicationProtocol> connectAsync() {
+        CompletableFuture<MetaRingCommunicationProtocol> connecting = new CompletableFuture<>();
+        this.connecting = connecting;
+        try {
+            connect();
+        }
+        catch(Exception e) {
+            connecting.completeExceptionally(e);
+        }
+        return connecting;
+    }
+
+    public final CompletableFuture<MetaRingCommunicationProtocol> connectAsync(long timeout, TimeUnit unit) {
+        CompletableFuture<MetaRingCommunicationProtocol> connecting = connectAsync();
+        if(timeout <= 0 || connecting.isDone()) {
+            return connecting;
+        }
+        long timeoutMillis = unit.toMillis(timeout);
+        HashedWheelTimer.Timeout expiry = HashedWheelTimer.SHARED.schedule(() -> execute(() -> {
+            if(connecting.completeExceptionally(new TimeoutException("Connection not established within " + timeoutMillis + " ms"))) {
+                abandon(connecting);
+            }
+        }), timeout, unit);
+        connecting.whenComplete((protocol, error) -> expiry.cancel());
+        return connecting;
+    }
+
+    private final void abandon(CompletableFuture<MetaRingCommunicationProtocol> connecting) {
+        if(this.connecting == connecting) {
+            this.connecting = null;
+        }
+        this.disconnectRequested = true;
+        this.sockJSClient.close();
+    }
+
     public final void disconnect() {
+        this.disconnectRequested = true;
         this.sockJSClient.disconnect();
     }
 
+    public final MetaRingCommunicationProtocol reconnect(ReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = reconnectPolicy;
+        return this;
+    }
+
+    public final MetaRingCommunicationProtocol replayPolicy(Predicate<FunctionalityInfo> replayPolicy) {
+        this.replayPolicy = replayPolicy;
+        return this;
+    }
+
+    public final MetaRingCommunicationProtocol onReconnect(Runnable onReconnect) {
+        this.onReconnect = onReconnect;
+        return this;
+    }
+
     public final MetaRingCommunicationProtocol onConnect(Runnable onConnect) {
         this.onConnect = onConnect;
         return this;
@@ -107,20 +214,281 @@ public final class MetaRingCommunicationProtocol {
         return this;
     }
 
+    final SockJSClient getSockJSClient() {
+        return sockJSClient;
+    }
+
+    final Consumer<Throwable> getOnDisconnect() {
+        return onDisconnect;
+    }
+
+    public final MetaRingCommunicationProtocol defaultTimeout(long timeout, TimeUnit unit) {
+        this.defaultTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    public final MetaRingCommunicationProtocol timeout(FunctionalityInfo functionalityInfo, long timeout, TimeUnit unit) {
+        functionalityTimeouts.put(functionalityInfo.getFunctionalityFullyQualifiedName(), unit.toMillis(timeout));
+        return this;
+    }
+
+    public final MetaRingCommunicationProtocol concurrencyLimit(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        return this;
+    }
+
+    public final MetaRingCommunicationProtocol concurrencyLimit(FunctionalityInfo functionalityInfo, ConcurrencyLimiter concurrencyLimiter) {
+        if(concurrencyLimiter == null) {
+            functionalityLimiters.remove(functionalityInfo.getFunctionalityFullyQualifiedName());
+        } else {
+            functionalityLimiters.put(functionalityInfo.getFunctionalityFullyQualifiedName(), concurrencyLimiter);
+        }
+        return this;
+    }
+
+    public final MetaRingCommunicationProtocol rateLimit(FunctionalityInfo functionalityInfo, RateLimiter rateLimiter) {
+        if(rateLimiter == null) {
+            rateLimiters.remove(functionalityInfo.getFunctionalityFullyQualifiedName());
+        } else {
+            rateLimiters.put(functionalityInfo.getFunctionalityFullyQualifiedName(), rateLimiter);
+        }
+        return this;
+    }
+
+    public final RateLimiter getRateLimiter(FunctionalityInfo functionalityInfo) {
+        return rateLimiters.get(functionalityInfo.getFunctionalityFullyQualifiedName());
+    }
+
+    public final MetaRingCommunicationProtocol responseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    public final synchronized MetaRingCommunicationProtocol cache(FunctionalityInfo functionalityInfo, long ttl, TimeUnit unit) {
+        if(responseCache == null) {
+            responseCache = ResponseCache.create(DEFAULT_CACHE_WEIGHT);
+        }
+        cacheTtls.put(functionalityInfo.getFunctionalityFullyQualifiedName(), unit.toNanos(ttl));
+        return this;
+    }
+
+    public final ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public final TopicSubscription invalidateOn(String pattern, FunctionalityInfo... functionalityInfos) {
+        return subscribeLazy(pattern, payload -> {
+            ResponseCache responseCache = this.responseCache;
+            if(responseCache != null) {
+                for(FunctionalityInfo functionalityInfo : functionalityInfos) {
+                    responseCache.invalidate(functionalityInfo);
+                }
+            }
+        });
+    }
+
+    public final MetaRingCommunicationProtocol deduplicate(FunctionalityInfo functionalityInfo) {
+        deduplicated.add(functionalityInfo.getFunctionalityFullyQualifiedName());
+        return this;
+    }
+
+    public final int getSharedCallCount() {
+        return sharedCalls.size();
+    }
+
+    public final MetaRingCommunicationProtocol credentialsVersion(Supplier<?> credentialsVersion) {
+        authEnvelopes.credentialsVersion(credentialsVersion);
+        return this;
+    }
+
+    public final MetaRingCommunicationProtocol invalidateCredentials() {
+        authEnvelopes.invalidate();
+        return this;
+    }
+
+    public final MetaRingCommunicationProtocol callbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+        this.topicExecutor = CallbackExecutors.striped(executor, DEFAULT_TOPIC_STRIPES);
+        return this;
+    }
+
+    public final MetaRingCommunicationProtocol topicExecutor(Executor executor, int stripes) {
+        this.topicExecutor = CallbackExecutors.striped(executor, stripes);
+        return this;
+    }
+
+    public final boolean isConnected() {
+        return connected.get();
+    }
+
+    public final int getInFlightCount() {
+        return sockJSCalls.size();
+    }
+
+    public final int getQueuedCount() {
+        return sockJSClient.getOutboxSize();
+    }
+
+    public final MetaRingCommunicationProtocol compression(CompressionOptions compression) {
+        sockJSClient.compression(compression);
+        return this;
+    }
+
+    public final CompressionStats getCompressionStats() {
+        return sockJSClient.getCompressionStats();
+    }
+
+    public final MetaRingCommunicationProtocol outbox(int capacity, OutboxOverflowPolicy overflowPolicy) {
+        sockJSClient.outbox(capacity, overflowPolicy);
+        return this;
+    }
+
     private final void connected() {
+        opening.set(false);
+        connected.set(true);
+        CompletableFuture<MetaRingCommunicationProtocol> connecting = this.connecting;
+        if(connecting != null) {
+            this.connecting = null;
+            connecting.complete(this);
+        }
+        boolean reconnected = reconnectAttempts.getAndSet(0) > 0;
+        if(reconnected) {
+            replayPendingCalls();
+        }
         if(onConnect != null) {
             onConnect.run();
         }
+        if(reconnected && onReconnect != null) {
+            onReconnect.run();
+        }
     }
 
     private final void onError(Throwable e) {
+        lost(e);
+    }
+
+    private final void onClose(SockJSClient.SockJSCloseData closeData) {
+        lost(new IOException("Connection closed (" + closeData.code + "): " + closeData.reason));
+    }
+
+    private final void lost(Throwable cause) {
+        if(connected.compareAndSet(true, false)) {
+            disconnected(cause, true);
+        } else if(opening.compareAndSet(true, false)) {
+            disconnected(cause, false);
+        }
+    }
+
+    private final void disconnected(Throwable cause, boolean wasConnected) {
+        boolean reconnecting = willReconnect();
+        if(!reconnecting) {
+            CompletableFuture<MetaRingCommunicationProtocol> connecting = this.connecting;
+            if(connecting != null) {
+                this.connecting = null;
+                connecting.completeExceptionally(cause);
+            }
+            replayableCalls.clear();
+            sockJSClient.clearOutbox();
+            failAll(sockJSCalls.values(), cause);
+        } else if(wasConnected) {
+            List<PendingCall> lost = new ArrayList<>();
+            for(PendingCall pendingCall : sockJSCalls.values()) {
+                if(!pendingCall.isWritten()) {
+                    continue;
+                }
+                if(pendingCall.replayable) {
+                    replayableCalls.add(pendingCall);
+                } else {
+                    lost.add(pendingCall);
+                }
+            }
+            failAll(lost, cause);
+        }
+        if(reconnecting) {
+            scheduleReconnect(cause);
+        }
         if(onDisconnect != null) {
-            onDisconnect.accept(e);
+            onDisconnect.accept(cause);
+        }
+    }
+
+    private final boolean willReconnect() {
+        ReconnectPolicy reconnectPolicy = this.reconnectPolicy;
+        return reconnectPolicy != null && !disconnectRequested && !reconnectPolicy.isExhausted(reconnectAttempts.get());
+    }
+
+    private final void scheduleReconnect(Throwable cause) {
+        if(!reconnectScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        int attempt = reconnectAttempts.getAndIncrement();
+        HashedWheelTimer.SHARED.schedule(() -> execute(this::reconnectNow), reconnectPolicy.delayMillis(attempt), TimeUnit.MILLISECONDS);
+    }
+
+    private final void reconnectNow() {
+        reconnectScheduled.set(false);
+        if(disconnectRequested || connected.get()) {
+            return;
+        }
+        opening.set(true);
+        try {
+            sockJSClient.reconnectAsync().whenComplete((client, error) -> {
+                if(error != null) {
+                    lost(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                }
+            });
+        }
+        catch(Exception e) {
+            lost(e);
+        }
+    }
+
+    private final void replayPendingCalls() {
+        PendingCall pendingCall;
+        while((pendingCall = replayableCalls.poll()) != null) {
+            if(sockJSCalls.get(pendingCall.id) == pendingCall) {
+                transmit(pendingCall);
+            }
+        }
+    }
+
+    private final void failAll(List<PendingCall> pendingCalls, Throwable cause) {
+        for(PendingCall pendingCall : pendingCalls) {
+            fail(pendingCall, new ConnectionLostException(pendingCall.id, pendingCall.functionalityName, cause));
+        }
+    }
+
+    private final void fail(PendingCall pendingCall, Throwable error) {
+        if(sockJSCalls.remove(pendingCall.id) != null) {
+            execute(() -> pendingCall.fail(error));
+        }
+    }
+
+    private final void execute(Runnable task) {
+        try {
+            callbackExecutor.execute(task);
         }
+        catch(RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private final void transmit(PendingCall pendingCall) {
+        try {
+            pendingCall.setWritten(false);
+            sockJSClient.sendFrame(pendingCall.frame, () -> pendingCall.setWritten(true));
+        }
+        catch(RejectedExecutionException e) {
+            fail(pendingCall, e);
+        }
+    }
+
+    public static final MetaRingCommunicationProtocol create(String url, String sockResource, String ipResource, Supplier<DataRepresentation> getIdentificationData, Supplier<DataRepresentation> getEnableData, Transport transport) {
+        return new MetaRingCommunicationProtocol(url, sockResource, ipResource, getIdentificationData, getEnableData, transport);
     }
 
     public static final MetaRingCommunicationProtocol create(String url, String sockResource, String ipResource, Supplier<DataRepresentation> getIdentificationData, Supplier<DataRepresentation> getEnableData) {
-        return new MetaRingCommunicationProtocol(url, sockResource, ipResource, getIdentificationData, getEnableData);
+        return create(url, sockResource, ipResource, getIdentificationData, getEnableData, Transport.SOCKJS);
     }
 
     public static final MetaRingCommunicationProtocol create(String url, String sockResource, String ipResource, Supplier<DataRepresentation> getIdentificationData) {
@@ -135,14 +503,281 @@ public final class MetaRingCommunicationProtocol {
         return create(url, sockResource, "127.0.0.1", null, null);
     }
 
+    public static final CompletableFuture<MetaRingCommunicationProtocol> createAsync(String url, String sockResource, String ipResource, Supplier<DataRepresentation> getIdentificationData, Supplier<DataRepresentation> getEnableData, Transport transport, long timeout, TimeUnit unit) {
+        String baseUrl = normalize(url);
+        int timeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout));
+        CompletableFuture<String> ip = clientIp(baseUrl, ipResource, timeoutMillis);
+        CompletableFuture<SockJSClient> sockJSClient = SockJSClient.createAsync(baseUrl + sockResource, transport, timeout, unit);
+        return ip.thenCombine(sockJSClient, (clientIp, client) -> new MetaRingCommunicationProtocol(clientIp, client, getIdentificationData, getEnableData))
+                .thenCompose(protocol -> protocol.connectAsync(timeout, unit));
+    }
+
+    public static final CompletableFuture<MetaRingCommunicationProtocol> createAsync(String url, String sockResource, String ipResource, Supplier<DataRepresentation> getIdentificationData, Supplier<DataRepresentation> getEnableData, long timeout, TimeUnit unit) {
+        return createAsync(url, sockResource, ipResource, getIdentificationData, getEnableData, Transport.SOCKJS, timeout, unit);
+    }
+
+    public static final CompletableFuture<MetaRingCommunicationProtocol> createAsync(String url, String sockResource, String ipResource, Supplier<DataRepresentation> getIdentificationData, Supplier<DataRepresentation> getEnableData, Transport transport) {
+        return createAsync(url, sockResource, ipResource, getIdentificationData, getEnableData, transport, DEFAULT_BOOTSTRAP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public static final CompletableFuture<MetaRingCommunicationProtocol> createAsync(String url, String sockResource, String ipResource, Supplier<DataRepresentation> getIdentificationData, Supplier<DataRepresentation> getEnableData) {
+        return createAsync(url, sockResource, ipResource, getIdentificationData, getEnableData, Transport.SOCKJS);
+    }
+
+    public static final CompletableFuture<MetaRingCommunicationProtocol> createAsync(String url, String sockResource, String ipResource, Supplier<DataRepresentation> getIdentificationData) {
+        return createAsync(url, sockResource, ipResource, getIdentificationData, null);
+    }
+
+    public static final CompletableFuture<MetaRingCommunicationProtocol> createAsync(String url, String sockResource, String ipResource) {
+        return createAsync(url, sockResource, ipResource, null, null);
+    }
+
+    public static final CompletableFuture<MetaRingCommunicationProtocol> createAsync(String url, String sockResource) {
+        return createAsync(url, sockResource, "127.0.0.1", null, null);
+    }
+
     private final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo, DataRepresentation functionalityParam) {
+        return call(functionalityInfo, functionalityParam, timeoutFor(functionalityInfo));
+    }
+
+    private final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo, DataRepresentation functionalityParam, long timeoutMillis) {
+        String functionalityName = functionalityInfo.getFunctionalityFullyQualifiedName();
+        Long ttlNanos = responseCache == null ? null : cacheTtls.get(functionalityName);
+        boolean deduplicate = deduplicated.contains(functionalityName);
+        if(ttlNanos != null || deduplicate) {
+            return materialize(sharedCall(functionalityInfo, functionalityParam, timeoutMillis, ttlNanos, deduplicate));
+        }
         CompletableFuture<FunctionalityExecutionResult> future = new CompletableFuture<>();
-        RpcRequest rpcRequest = encapsulate(functionalityInfo, functionalityParam);
-        sockJSCalls.put(rpcRequest.getId(), future);
-        sockJSClient.send(rpcRequest.toJson());
+        send(functionalityInfo, functionalityParam, timeoutMillis, future, null);
         return future;
     }
 
+    private final CompletableFuture<LazyFunctionalityExecutionResult> callLazy(FunctionalityInfo functionalityInfo, DataRepresentation functionalityParam, long timeoutMillis) {
+        String functionalityName = functionalityInfo.getFunctionalityFullyQualifiedName();
+        Long ttlNanos = responseCache == null ? null : cacheTtls.get(functionalityName);
+        boolean deduplicate = deduplicated.contains(functionalityName);
+        if(ttlNanos != null || deduplicate) {
+            return sharedCall(functionalityInfo, functionalityParam, timeoutMillis, ttlNanos, deduplicate);
+        }
+        CompletableFuture<LazyFunctionalityExecutionResult> future = new CompletableFuture<>();
+        send(functionalityInfo, functionalityParam, timeoutMillis, null, future);
+        return future;
+    }
+
+    private final CompletableFuture<LazyFunctionalityExecutionResult> sharedCall(FunctionalityInfo functionalityInfo, DataRepresentation functionalityParam, long timeoutMillis, Long ttlNanos, boolean deduplicate) {
+        ResponseCache responseCache = ttlNanos == null ? null : this.responseCache;
+        CallKey key = CallKey.of(functionalityInfo.getFunctionalityFullyQualifiedName(), functionalityParam);
+        if(responseCache != null) {
+            LazyFunctionalityExecutionResult cached = responseCache.get(key);
+            if(cached != null) {
+                return CompletableFuture.completedFuture(cached.copy());
+            }
+        }
+        CompletableFuture<LazyFunctionalityExecutionResult> future = new CompletableFuture<>();
+        if(deduplicate) {
+            CompletableFuture<LazyFunctionalityExecutionResult> shared = sharedCalls.putIfAbsent(key, future);
+            if(shared != null) {
+                return expireAfter(copy(shared), key.functionalityName, timeoutMillis);
+            }
+            future.whenComplete((result, error) -> sharedCalls.remove(key, future));
+        }
+        if(responseCache != null) {
+            long generation = responseCache.generation();
+            future.thenAccept(result -> {
+                if(result != null && result.isSuccessful()) {
+                    responseCache.put(key, result, ttlNanos, generation);
+                }
+            });
+        }
+        try {
+            send(functionalityInfo, functionalityParam, timeoutMillis, null, future);
+        }
+        catch(RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        return copy(future);
+    }
+
+    private static final CompletableFuture<LazyFunctionalityExecutionResult> copy(CompletableFuture<LazyFunctionalityExecutionResult> source) {
+        CompletableFuture<LazyFunctionalityExecutionResult> copy = new CompletableFuture<>();
+        source.whenComplete((result, error) -> {
+            if(error != null) {
+                copy.completeExceptionally(error);
+            } else {
+                copy.complete(result == null ? null : result.copy());
+            }
+        });
+        return copy;
+    }
+
+    private final CompletableFuture<LazyFunctionalityExecutionResult> expireAfter(CompletableFuture<LazyFunctionalityExecutionResult> future, String functionalityName, long timeoutMillis) {
+        if(timeoutMillis <= 0 || future.isDone()) {
+            return future;
+        }
+        HashedWheelTimer.Timeout timeout = HashedWheelTimer.SHARED.schedule(() -> execute(() -> future.completeExceptionally(new RpcTimeoutException(0L, functionalityName, timeoutMillis))), timeoutMillis, TimeUnit.MILLISECONDS);
+        future.whenComplete((result, error) -> timeout.cancel());
+        return future;
+    }
+
+    private static final CompletableFuture<FunctionalityExecutionResult> materialize(CompletableFuture<LazyFunctionalityExecutionResult> lazyFuture) {
+        CompletableFuture<FunctionalityExecutionResult> future = new CompletableFuture<>();
+        lazyFuture.whenComplete((result, error) -> {
+            if(error != null) {
+                future.completeExceptionally(error);
+                return;
+            }
+            try {
+                future.complete(result == null ? null : result.materialize());
+            }
+            catch(Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private final void send(FunctionalityInfo functionalityInfo, DataRepresentation functionalityParam, long timeoutMillis, CompletableFuture<FunctionalityExecutionResult> future, CompletableFuture<LazyFunctionalityExecutionResult> lazyFuture) {
+        RateLimiter rateLimiter = rateLimiters.get(functionalityInfo.getFunctionalityFullyQualifiedName());
+        if(rateLimiter == null) {
+            admit(functionalityInfo, functionalityParam, timeoutMillis, future, lazyFuture);
+            return;
+        }
+        long delayNanos = rateLimiter.reserve(timeoutMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : Long.MAX_VALUE);
+        if(delayNanos < 0) {
+            CompletableFuture<?> result = future != null ? future : lazyFuture;
+            result.completeExceptionally(new RejectedExecutionException("Rate limit exceeded for " + functionalityInfo.getFunctionalityFullyQualifiedName()));
+            return;
+        }
+        if(delayNanos == 0) {
+            admit(functionalityInfo, functionalityParam, timeoutMillis, future, lazyFuture);
+            return;
+        }
+        long remainingMillis = timeoutMillis <= 0 ? timeoutMillis : Math.max(1L, timeoutMillis - TimeUnit.NANOSECONDS.toMillis(delayNanos));
+        HashedWheelTimer.SHARED.schedule(() -> execute(() -> {
+            try {
+                admit(functionalityInfo, functionalityParam, remainingMillis, future, lazyFuture);
+            }
+            catch(RuntimeException e) {
+                (future != null ? future : lazyFuture).completeExceptionally(e);
+            }
+        }), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private final void admit(FunctionalityInfo functionalityInfo, DataRepresentation functionalityParam, long timeoutMillis, CompletableFuture<FunctionalityExecutionResult> future, CompletableFuture<LazyFunctionalityExecutionResult> lazyFuture) {
+        ConcurrencyLimiter functionalityLimiter = functionalityLimiters.get(functionalityInfo.getFunctionalityFullyQualifiedName());
+        ConcurrencyLimiter concurrencyLimiter = this.concurrencyLimiter;
+        if(functionalityLimiter == null && concurrencyLimiter == null) {
+            dispatch(functionalityInfo, functionalityParam, timeoutMillis, future, lazyFuture);
+            return;
+        }
+        CompletableFuture<?> result = future != null ? future : lazyFuture;
+        String functionalityName = functionalityInfo.getFunctionalityFullyQualifiedName();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        acquire(functionalityLimiter, functionalityName, timeoutMillis, deadline).whenComplete((functionalityPermit, functionalityError) -> {
+            if(functionalityError != null) {
+                result.completeExceptionally(functionalityError);
+                return;
+            }
+            acquire(concurrencyLimiter, functionalityName, timeoutMillis, deadline).whenComplete((permit, error) -> {
+                if(error != null) {
+                    release(functionalityLimiter, -1L, false);
+                    result.completeExceptionally(error);
+                    return;
+                }
+                long admitted = System.nanoTime();
+                long remainingMillis = timeoutMillis <= 0 ? timeoutMillis : TimeUnit.NANOSECONDS.toMillis(deadline - admitted);
+                if(timeoutMillis > 0 && remainingMillis <= 0) {
+                    release(functionalityLimiter, -1L, false);
+                    release(concurrencyLimiter, -1L, false);
+                    result.completeExceptionally(new RpcTimeoutException(0L, functionalityName, timeoutMillis));
+                    return;
+                }
+                result.whenComplete((value, callError) -> {
+                    long latency = System.nanoTime() - admitted;
+                    boolean dropped = callError instanceof RpcTimeoutException;
+                    release(functionalityLimiter, latency, dropped);
+                    release(concurrencyLimiter, latency, dropped);
+                });
+                try {
+                    dispatch(functionalityInfo, functionalityParam, remainingMillis, future, lazyFuture);
+                }
+                catch(RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        });
+    }
+
+    private final CompletableFuture<Void> acquire(ConcurrencyLimiter concurrencyLimiter, String functionalityName, long timeoutMillis, long deadline) {
+        if(concurrencyLimiter == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> permit = concurrencyLimiter.acquire();
+        if(timeoutMillis <= 0 || permit.isDone()) {
+            return permit;
+        }
+        HashedWheelTimer.Timeout timeout = HashedWheelTimer.SHARED.schedule(() -> execute(() -> permit.completeExceptionally(new RpcTimeoutException(0L, functionalityName, timeoutMillis))), deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        permit.whenComplete((granted, error) -> timeout.cancel());
+        return permit;
+    }
+
+    private static final void release(ConcurrencyLimiter concurrencyLimiter, long latencyNanos, boolean dropped) {
+        if(concurrencyLimiter != null) {
+            concurrencyLimiter.release(latencyNanos, dropped);
+        }
+    }
+
+    private final void dispatch(FunctionalityInfo functionalityInfo, DataRepresentation functionalityParam, long timeoutMillis, CompletableFuture<FunctionalityExecutionResult> future, CompletableFuture<LazyFunctionalityExecutionResult> lazyFuture) {
+        long id = lastCallId.incrementAndGet();
+        String functionalityName = functionalityInfo.getFunctionalityFullyQualifiedName();
+        AuthEnvelopes.Envelope envelope = authEnvelopes.envelope(functionalityInfo);
+        String frame = sockJSClient.getTransport() == Transport.WEBSOCKET ? RpcRequestWriter.json(envelope, functionalityName, functionalityParam, id) : RpcRequestWriter.frame(envelope, functionalityName, functionalityParam, id);
+        boolean replayable = replayPolicy.test(functionalityInfo);
+        PendingCall pendingCall = new PendingCall(id, functionalityName, frame, replayable, future, lazyFuture);
+        sockJSCalls.put(pendingCall.id, pendingCall);
+        pendingCall.expireAfter(timeoutMillis, () -> expire(pendingCall, timeoutMillis));
+        transmit(pendingCall);
+    }
+
+    private final long timeoutFor(FunctionalityInfo functionalityInfo) {
+        Long timeoutMillis = functionalityTimeouts.get(functionalityInfo.getFunctionalityFullyQualifiedName());
+        return timeoutMillis != null ? timeoutMillis : defaultTimeoutMillis;
+    }
+
+    private final void dropped(String request) {
+        PendingCall pendingCall = sockJSCalls.get(JsonFields.scan(request).getLong("id", 0L));
+        if(pendingCall != null) {
+            fail(pendingCall, new RejectedExecutionException("Call " + pendingCall.id + " to " + pendingCall.functionalityName + " was dropped from the full outbox"));
+        }
+    }
+
+    private final void expire(PendingCall pendingCall, long timeoutMillis) {
+        if(sockJSCalls.remove(pendingCall.id) != null) {
+            execute(() -> pendingCall.fail(new RpcTimeoutException(pendingCall.id, pendingCall.functionalityName, timeoutMillis)));
+        }
+    }
+
+    public final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo, DataRepresentation param, long timeout, TimeUnit unit) {
+        return call(functionalityInfo, param, unit.toMillis(timeout));
+    }
+
+    public final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo, long timeout, TimeUnit unit) {
+        return call(functionalityInfo, (DataRepresentation) null, unit.toMillis(timeout));
+    }
+
+    public final CompletableFuture<LazyFunctionalityExecutionResult> callLazy(FunctionalityInfo functionalityInfo, DataRepresentation param) {
+        return callLazy(functionalityInfo, param, timeoutFor(functionalityInfo));
+    }
+
+    public final CompletableFuture<LazyFunctionalityExecutionResult> callLazy(FunctionalityInfo functionalityInfo, DataRepresentation param, long timeout, TimeUnit unit) {
+        return callLazy(functionalityInfo, param, unit.toMillis(timeout));
+    }
+
+    public final CompletableFuture<LazyFunctionalityExecutionResult> callLazy(FunctionalityInfo functionalityInfo) {
+        return callLazy(functionalityInfo, null, timeoutFor(functionalityInfo));
+    }
+
     public final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo, String param) {
         return call(functionalityInfo, Tools.FACTORY_DATA_REPRESENTATION.fromObject(param));
     }
@@ -167,11 +802,42 @@ public final class MetaRingCommunicationProtocol {
         return call(functionalityInfo, (DataRepresentation) null);
     }
 
+    /**
+     * Registers a callback for the topics matching the given pattern. Patterns are dot-separated: a
+     * {@code *} segment matches exactly one topic segment and a trailing {@code #} segment matches zero
+     * or more. A name containing those segments is therefore a pattern, not an exact topic name.
+     *
+     * @throws IllegalArgumentException if {@code #} appears anywhere but in the last segment
+     */
     public final MetaRingCommunicationProtocol callback(String name, Consumer<FunctionalityExecutionResult> callback) {
-        permanentSockJSCallbacks.put(name, callback);
+        subscribe(name, callback);
         return this;
     }
 
+    public final TopicSubscription subscribe(String pattern, Consumer<FunctionalityExecutionResult> callback) {
+        return permanentSockJSCallbacks.add(pattern, TopicListeners.direct(payload -> callback.accept(payload.materialize())));
+    }
+
+    public final TopicSubscription subscribeLazy(String pattern, Consumer<LazyFunctionalityExecutionResult> callback) {
+        return permanentSockJSCallbacks.add(pattern, TopicListeners.direct(callback));
+    }
+
+    public final TopicSubscription subscribeConflated(String pattern, Consumer<FunctionalityExecutionResult> callback) {
+        return permanentSockJSCallbacks.add(pattern, TopicListeners.conflating(null, payload -> callback.accept(payload.materialize())));
+    }
+
+    public final TopicSubscription subscribeConflated(String pattern, Function<LazyFunctionalityExecutionResult, ?> keyExtractor, Consumer<FunctionalityExecutionResult> callback) {
+        return permanentSockJSCallbacks.add(pattern, TopicListeners.conflating(keyExtractor, payload -> callback.accept(payload.materialize())));
+    }
+
+    public final TopicPublisher<FunctionalityExecutionResult> publisher(String pattern, int bufferSize, TopicOverflowStrategy overflowStrategy) {
+        return new TopicPublisher<>(permanentSockJSCallbacks, pattern, bufferSize, overflowStrategy, callbackExecutor, LazyFunctionalityExecutionResult::materialize);
+    }
+
+    public final TopicPublisher<LazyFunctionalityExecutionResult> lazyPublisher(String pattern, int bufferSize, TopicOverflowStrategy overflowStrategy) {
+        return new TopicPublisher<>(permanentSockJSCallbacks, pattern, bufferSize, overflowStrategy, callbackExecutor, Function.identity());
+    }
+
     public final RpcRequest encapsulate(FunctionalityInfo functionalityInfo) {
         return encapsulate(functionalityInfo, null);
     }
@@ -186,46 +852,66 @@ public final class MetaRingCommunicationProtocol {
             request = dataRepresentationFactory
                     .create()
                     .add("name", CALL_RESTRICTED)
-                    .add("param", request.add("data", getEnableData.get()));
+                    .add("param", request.add("data", authEnvelopes.enableData()));
         }
         if(functionalityInfo.isReserved() || functionalityInfo.isRestricted()) {
             request = dataRepresentationFactory
                     .create()
                     .add("name", CALL_RESERVED)
-                    .add("param", request.add("data", getIdentificationData.get()));
-        }
-        long id = System.currentTimeMillis();
-        while(sockJSCalls.containsKey(id)) {
-            id = System.currentTimeMillis();
+                    .add("param", request.add("data", authEnvelopes.identificationData()));
         }
-        request.add("id", id);
+        request.add("id", lastCallId.incrementAndGet());
         return request.as(RpcRequest.class);
     }
 
+    private static final LazyFunctionalityExecutionResult decodeResult(String json, JsonFields response) {
+        RpcCodec codec = RpcCodecs.get();
+        if(codec == RpcCodecs.fast()) {
+            int start = response.start("result");
+            return start < 0 ? null : LazyFunctionalityExecutionResult.ofResult(json, start, response.end("result"));
+        }
+        RpcResponse rpcResponse = codec.decodeResponse(json);
+        return rpcResponse == null ? null : LazyFunctionalityExecutionResult.ofMaterialized(rpcResponse.getResult());
+    }
+
+    private final void complete(PendingCall pendingCall, String json, JsonFields response) {
+        LazyFunctionalityExecutionResult result;
+        try {
+            result = decodeResult(json, response);
+        }
+        catch(RuntimeException e) {
+            execute(() -> pendingCall.fail(e));
+            return;
+        }
+        execute(() -> pendingCall.complete(result));
+    }
+
     private final void consumeResponse(String json) {
-        DataRepresentation response = Tools.FACTORY_DATA_REPRESENTATION.fromJson(json);
-        CompletableFuture<FunctionalityExecutionResult> callback = null;
-        RpcResponse rpcResponse = response.as(RpcResponse.class);
-        if(rpcResponse.getId() != null && rpcResponse.getId() > 0) {
-            callback = sockJSCalls.remove(rpcResponse.getId());
+        JsonFields response = JsonFields.scan(json);
+        long id = response.getLong("id", 0L);
+        if(id > 0) {
+            PendingCall callback = sockJSCalls.remove(id);
             if(callback != null) {
-                callback.complete(rpcResponse.getResult());
+                complete(callback, json, response);
             }
-            if(response.hasProperty("data") && !response.isNull("data") && response.get("data").hasProperty("oneTimeToken") && permanentSockJSCallbacks.containsKey("oneTimeToken")) {
-                response
-                .add("response", "SUCCESS")
-                .add("result", response.get("data").getText("oneTimeToken"));
-                permanentSockJSCallbacks.get("oneTimeToken").accept(response.as(FunctionalityExecutionResult.class));
+            if(!response.isNull("data")) {
+                JsonFields data = response.object("data");
+                if(data.has("oneTimeToken") && permanentSockJSCallbacks.hasSubscribers("oneTimeToken")) {
+                    String oneTimeToken = data.getString("oneTimeToken");
+                    publish("oneTimeToken", LazyFunctionalityExecutionResult.ofValue(Tools.FACTORY_DATA_REPRESENTATION.fromObject(oneTimeToken)));
+                }
             }
             return;
         }
-        Consumer<FunctionalityExecutionResult> permanentCallback = null;
-        response
-            .add("response", "SUCCESS")
-            .add("result", response.get("payload"));
-        permanentCallback = permanentSockJSCallbacks.get(response.getText("topic"));
-        if(permanentCallback != null) {
-            permanentCallback.accept(response.as(FunctionalityExecutionResult.class));
+        String topic = response.getString("topic");
+        if(topic != null) {
+            int start = response.start("payload");
+            publish(topic, LazyFunctionalityExecutionResult.ofPayload(json, start, response.end("payload")));
         }
     }
+
+    private final void publish(String topic, LazyFunctionalityExecutionResult payload) {
+        StripedExecutor topicExecutor = this.topicExecutor;
+        permanentSockJSCallbacks.dispatch(topic, subscription -> subscription.deliver(topic, payload, topicExecutor));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,243 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.metaring.framework.CoreType;
+import com.metaring.framework.functionality.FunctionalityExecutionResult;
+import com.metaring.framework.functionality.FunctionalityInfo;
+import com.metaring.framework.type.DataRepresentation;
+
+public final class MetaRingCommunicationProtocolPool {
+
+    private final List<MetaRingCommunicationProtocol> sessions;
+    private final Set<PooledSubscription> subscriptions = new CopyOnWriteArraySet<>();
+
+    private volatile Consumer<Throwable> onDisconnect;
+
+    private MetaRingCommunicationProtocolPool(int size, Supplier<MetaRingCommunicationProtocol> factory) {
+        if(size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + size);
+        }
+        List<MetaRingCommunicationProtocol> sessions = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            MetaRingCommunicationProtocol session = factory.get();
+            Consumer<Throwable> onDisconnect = session.getOnDisconnect();
+            session.onDisconnect(e -> {
+                if(onDisconnect != null) {
+                    onDisconnect.accept(e);
+                }
+                sessionLost(session, e);
+            });
+            sessions.add(session);
+        }
+        this.sessions = Collections.unmodifiableList(sessions);
+    }
+
+    public static final MetaRingCommunicationProtocolPool create(int size, Supplier<MetaRingCommunicationProtocol> factory) {
+        return new MetaRingCommunicationProtocolPool(size, factory);
+    }
+
+    public static final MetaRingCommunicationProtocolPool create(int size, String url, String sockResource, String ipResource, Supplier<DataRepresentation> getIdentificationData, Supplier<DataRepresentation> getEnableData) {
+        return create(size, () -> MetaRingCommunicationProtocol.create(url, sockResource, ipResource, getIdentificationData, getEnableData));
+    }
+
+    public static final MetaRingCommunicationProtocolPool create(int size, String url, String sockResource) {
+        return create(size, () -> MetaRingCommunicationProtocol.create(url, sockResource));
+    }
+
+    public final MetaRingCommunicationProtocolPool connect() {
+        sessions.forEach(MetaRingCommunicationProtocol::connect);
+        return this;
+    }
+
+    public final void disconnect() {
+        sessions.forEach(MetaRingCommunicationProtocol::disconnect);
+    }
+
+    public final MetaRingCommunicationProtocolPool onDisconnect(Consumer<Throwable> onDisconnect) {
+        this.onDisconnect = onDisconnect;
+        return this;
+    }
+
+    public final List<MetaRingCommunicationProtocol> getSessions() {
+        return sessions;
+    }
+
+    public final int getInFlightCount() {
+        int inFlight = 0;
+        for(MetaRingCommunicationProtocol session : sessions) {
+            inFlight += session.getInFlightCount();
+        }
+        return inFlight;
+    }
+
+    private final MetaRingCommunicationProtocol leastLoaded() {
+        MetaRingCommunicationProtocol best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        boolean bestConnected = false;
+        for(MetaRingCommunicationProtocol session : sessions) {
+            boolean connected = session.isConnected();
+            int load = session.getInFlightCount();
+            if(best == null || (connected && !bestConnected) || (connected == bestConnected && load < bestLoad)) {
+                best = session;
+                bestLoad = load;
+                bestConnected = connected;
+            }
+        }
+        return best;
+    }
+
+    private final MetaRingCommunicationProtocol home(String pattern, MetaRingCommunicationProtocol excluded) {
+        int size = sessions.size();
+        int start = (pattern.hashCode() & Integer.MAX_VALUE) % size;
+        MetaRingCommunicationProtocol fallback = null;
+        for(int i = 0; i < size; i++) {
+            MetaRingCommunicationProtocol session = sessions.get((start + i) % size);
+            if(session == excluded) {
+                continue;
+            }
+            if(session.isConnected()) {
+                return session;
+            }
+            if(fallback == null) {
+                fallback = session;
+            }
+        }
+        return fallback != null ? fallback : sessions.get(start);
+    }
+
+    private final void sessionLost(MetaRingCommunicationProtocol session, Throwable e) {
+        // Topic callbacks live in each member's local registry, so re-homing only moves the listener:
+        // nothing is re-announced to the server and messages already routed to the lost member are not replayed.
+        for(PooledSubscription subscription : subscriptions) {
+            if(subscription.session == session) {
+                subscription.rehome(home(subscription.pattern, session));
+            }
+        }
+        Consumer<Throwable> onDisconnect = this.onDisconnect;
+        if(onDisconnect != null) {
+            onDisconnect.accept(e);
+        }
+    }
+
+    public final PooledSubscription subscribe(String pattern, Consumer<FunctionalityExecutionResult> callback) {
+        PooledSubscription subscription = new PooledSubscription(pattern, callback);
+        subscriptions.add(subscription);
+        subscription.rehome(home(pattern, null));
+        return subscription;
+    }
+
+    public final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo, DataRepresentation param, long timeout, TimeUnit unit) {
+        return leastLoaded().call(functionalityInfo, param, timeout, unit);
+    }
+
+    public final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo, long timeout, TimeUnit unit) {
+        return leastLoaded().call(functionalityInfo, timeout, unit);
+    }
+
+    public final CompletableFuture<LazyFunctionalityExecutionResult> callLazy(FunctionalityInfo functionalityInfo, DataRepresentation param) {
+        return leastLoaded().callLazy(functionalityInfo, param);
+    }
+
+    public final CompletableFuture<LazyFunctionalityExecutionResult> callLazy(FunctionalityInfo functionalityInfo) {
+        return leastLoaded().callLazy(functionalityInfo);
+    }
+
+    public final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo, String param) {
+        return leastLoaded().call(functionalityInfo, param);
+    }
+
+    public final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo, Long param) {
+        return leastLoaded().call(functionalityInfo, param);
+    }
+
+    public final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo, Double param) {
+        return leastLoaded().call(functionalityInfo, param);
+    }
+
+    public final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo, Boolean param) {
+        return leastLoaded().call(functionalityInfo, param);
+    }
+
+    public final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo, CoreType param) {
+        return leastLoaded().call(functionalityInfo, param);
+    }
+
+    public final CompletableFuture<FunctionalityExecutionResult> call(FunctionalityInfo functionalityInfo) {
+        return leastLoaded().call(functionalityInfo);
+    }
+
+    public final class PooledSubscription implements AutoCloseable {
+
+        private final String pattern;
+        private final Consumer<FunctionalityExecutionResult> callback;
+
+        private MetaRingCommunicationProtocol session;
+        private TopicSubscription subscription;
+        private boolean closed;
+
+        private PooledSubscription(String pattern, Consumer<FunctionalityExecutionResult> callback) {
+            this.pattern = pattern;
+            this.callback = callback;
+        }
+
+        public final String getPattern() {
+            return pattern;
+        }
+
+        public final synchronized MetaRingCommunicationProtocol getSession() {
+            return session;
+        }
+
+        private final synchronized void rehome(MetaRingCommunicationProtocol session) {
+            if(closed || session == this.session) {
+                return;
+            }
+            if(subscription != null) {
+                subscription.unsubscribe();
+            }
+            this.session = session;
+            this.subscription = session.subscribe(pattern, callback);
+        }
+
+        public final synchronized void unsubscribe() {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            subscriptions.remove(this);
+            if(subscription != null) {
+                subscription.unsubscribe();
+            }
+        }
+
+        @Override
+        public final void close() {
+            unsubscribe();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+
+final class MeteredDeflateExtension extends PerMessageDeflateExtension {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+    private final int level;
+    private final int threshold;
+    private final boolean clientContextTakeover;
+    private final boolean serverContextTakeover;
+    private final CompressionStats stats;
+
+    MeteredDeflateExtension(int level, int threshold, boolean clientContextTakeover, boolean serverContextTakeover, CompressionStats stats) {
+        super(level);
+        this.level = level;
+        this.threshold = threshold;
+        this.clientContextTakeover = clientContextTakeover;
+        this.serverContextTakeover = serverContextTakeover;
+        this.stats = stats;
+        setThreshold(threshold);
+        setClientNoContextTakeover(!clientContextTakeover);
+        setServerNoContextTakeover(!serverContextTakeover);
+    }
+
+    @Override
+    public final void encodeFrame(Framedata inputFrame) {
+        if(!(inputFrame instanceof DataFrame)) {
+            super.encodeFrame(inputFrame);
+            return;
+        }
+        ByteBuffer payload = inputFrame.getPayloadData();
+        int before = payload.remaining();
+        if(!isExactArray(payload)) {
+            ((DataFrame) inputFrame).setPayload(exactArray(payload));
+        }
+        long start = now();
+        super.encodeFrame(inputFrame);
+        stats.deflated(before, inputFrame.getPayloadData().remaining(), now() - start);
+    }
+
+    @Override
+    public final void decodeFrame(Framedata inputFrame) throws InvalidDataException {
+        if(!(inputFrame instanceof DataFrame)) {
+            super.decodeFrame(inputFrame);
+            return;
+        }
+        int before = inputFrame.getPayloadData().remaining();
+        long start = now();
+        super.decodeFrame(inputFrame);
+        stats.inflated(before, inputFrame.getPayloadData().remaining(), now() - start);
+    }
+
+    @Override
+    public final IExtension copyInstance() {
+        return new MeteredDeflateExtension(level, threshold, clientContextTakeover, serverContextTakeover, stats);
+    }
+
+    private static final boolean isExactArray(ByteBuffer payload) {
+        return payload.hasArray() && payload.arrayOffset() == 0 && payload.position() == 0 && payload.limit() == payload.array().length;
+    }
+
+    private static final ByteBuffer exactArray(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static final long now() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.metaring.framework.functionality.FunctionalityExecutionResult;
+
+final class PendingCall {
+
+    final long id;
+    final String functionalityName;
+    final CompletableFuture<FunctionalityExecutionResult> future;
+    final CompletableFuture<LazyFunctionalityExecutionResult> lazyFuture;
+    final String frame;
+    final boolean replayable;
+
+    private volatile HashedWheelTimer.Timeout timeout;
+    private volatile boolean written;
+
+    PendingCall(long id, String functionalityName, String frame, boolean replayable, CompletableFuture<FunctionalityExecutionResult> future, CompletableFuture<LazyFunctionalityExecutionResult> lazyFuture) {
+        this.id = id;
+        this.functionalityName = functionalityName;
+        this.frame = frame;
+        this.replayable = replayable;
+        this.future = future;
+        this.lazyFuture = lazyFuture;
+    }
+
+    final void expireAfter(long timeoutMillis, Runnable onExpire) {
+        if(timeoutMillis > 0) {
+            this.timeout = HashedWheelTimer.SHARED.schedule(onExpire, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    final boolean isWritten() {
+        return written;
+    }
+
+    final void setWritten(boolean written) {
+        this.written = written;
+    }
+
+    final void complete(LazyFunctionalityExecutionResult result) {
+        cancelTimeout();
+        if(lazyFuture != null) {
+            lazyFuture.complete(result);
+            return;
+        }
+        try {
+            future.complete(result == null ? null : result.materialize());
+        }
+        catch(Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    final void fail(Throwable error) {
+        cancelTimeout();
+        if(lazyFuture != null) {
+            lazyFuture.completeExceptionally(error);
+            return;
+        }
+        future.completeExceptionally(error);
+    }
+
+    private final void cancelTimeout() {
+        HashedWheelTimer.Timeout timeout = this.timeout;
+        if(timeout != null) {
+            timeout.cancel();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class PendingCallTable<V> {
+
+    private static final long FREE = 0L;
+    private static final int STRIPES = 16;
+    private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+    private final Stripe[] stripes;
+    private final AtomicInteger size = new AtomicInteger();
+
+    PendingCallTable() {
+        this.stripes = new Stripe[STRIPES];
+        for(int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe(INITIAL_STRIPE_CAPACITY);
+        }
+    }
+
+    final void put(long id, V value) {
+        if(id <= FREE) {
+            throw new IllegalArgumentException("Call id must be positive: " + id);
+        }
+        long hash = mix(id);
+        if(stripeFor(hash).put(id, hash, value) == null) {
+            size.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    final V get(long id) {
+        if(id <= FREE) {
+            return null;
+        }
+        long hash = mix(id);
+        return (V) stripeFor(hash).get(id, hash);
+    }
+
+    @SuppressWarnings("unchecked")
+    final V remove(long id) {
+        if(id <= FREE) {
+            return null;
+        }
+        long hash = mix(id);
+        Object removed = stripeFor(hash).remove(id, hash);
+        if(removed != null) {
+            size.decrementAndGet();
+        }
+        return (V) removed;
+    }
+
+    final int size() {
+        return size.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    final List<V> values() {
+        List<V> values = new ArrayList<>();
+        for(Stripe stripe : stripes) {
+            for(Object value : stripe.values()) {
+                values.add((V) value);
+            }
+        }
+        return values;
+    }
+
+    private final Stripe stripeFor(long hash) {
+        return stripes[(int) (hash >>> 60) & (STRIPES - 1)];
+    }
+
+    private static final long mix(long id) {
+        id ^= id >>> 33;
+        id *= 0xff51afd7ed558ccdL;
+        id ^= id >>> 33;
+        id *= 0xc4ceb9fe1a85ec53L;
+        id ^= id >>> 33;
+        return id;
+    }
+
+    private static final class Stripe {
+
+        private long[] keys;
+        private Object[] values;
+        private int count;
+
+        private Stripe(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+        }
+
+        private synchronized Object put(long id, long hash, Object value) {
+            if((count + 1) * 4 > keys.length * 3) {
+                resize(keys.length << 1);
+            }
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while(keys[slot] != FREE) {
+                if(keys[slot] == id) {
+                    Object previous = values[slot];
+                    values[slot] = value;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = id;
+            values[slot] = value;
+            count++;
+            return null;
+        }
+
+        private synchronized Object get(long id, long hash) {
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while(keys[slot] != FREE) {
+                if(keys[slot] == id) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private synchronized Object remove(long id, long hash) {
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while(keys[slot] != FREE) {
+                if(keys[slot] == id) {
+                    Object removed = values[slot];
+                    shiftBack(slot, mask);
+                    count--;
+                    if(keys.length > INITIAL_STRIPE_CAPACITY && count * 8 < keys.length) {
+                        resize(keys.length >> 1);
+                    }
+                    return removed;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private synchronized List<Object> values() {
+            List<Object> values = new ArrayList<>(count);
+            for(int i = 0; i < keys.length; i++) {
+                if(keys[i] != FREE) {
+                    values.add(this.values[i]);
+                }
+            }
+            return values;
+        }
+
+        private final void shiftBack(int free, int mask) {
+            int slot = free;
+            while(true) {
+                slot = (slot + 1) & mask;
+                long key = keys[slot];
+                if(key == FREE) {
+                    break;
+                }
+                int home = (int) mix(key) & mask;
+                if(((slot - home) & mask) >= ((slot - free) & mask)) {
+                    keys[free] = key;
+                    values[free] = values[slot];
+                    free = slot;
+                }
+            }
+            keys[free] = FREE;
+            values[free] = null;
+        }
+
+        private final void resize(int capacity) {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[capacity];
+            values = new Object[capacity];
+            int mask = keys.length - 1;
+            for(int i = 0; i < oldKeys.length; i++) {
+                long key = oldKeys[i];
+                if(key != FREE) {
+                    int slot = (int) mix(key) & mask;
+                    while(keys[slot] != FREE) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = key;
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class RateLimiter {
+
+    private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+    private final AtomicLong grantedCount = new AtomicLong();
+    private final AtomicLong delayedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final long intervalNanos;
+
+    private volatile long burstNanos;
+    private volatile long maxDelayNanos;
+
+    private RateLimiter(long intervalNanos) {
+        if(intervalNanos <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = intervalNanos;
+    }
+
+    public static final RateLimiter perSecond(double permits) {
+        if(!(permits > 0)) {
+            throw new IllegalArgumentException("Permits must be positive: " + permits);
+        }
+        return new RateLimiter((long) (TimeUnit.SECONDS.toNanos(1) / permits));
+    }
+
+    public static final RateLimiter of(long permits, long period, TimeUnit unit) {
+        if(permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive: " + permits);
+        }
+        return new RateLimiter(unit.toNanos(period) / permits);
+    }
+
+    public final RateLimiter burst(int permits) {
+        this.burstNanos = intervalNanos * Math.max(1, permits);
+        return this;
+    }
+
+    public final RateLimiter delayUpTo(long maxDelay, TimeUnit unit) {
+        this.maxDelayNanos = Math.max(0L, unit.toNanos(maxDelay));
+        return this;
+    }
+
+    public final boolean tryAcquire() {
+        return reserve(0L) == 0L;
+    }
+
+    final long reserve(long maxDelayNanos) {
+        long maxDelay = Math.min(maxDelayNanos, this.maxDelayNanos);
+        long burst = this.burstNanos;
+        while(true) {
+            long now = System.nanoTime();
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, now) + intervalNanos;
+            long delay = Math.max(0L, next - now - burst);
+            if(delay > maxDelay) {
+                rejectedCount.incrementAndGet();
+                return -1L;
+            }
+            if(theoreticalArrival.compareAndSet(arrival, next)) {
+                grantedCount.incrementAndGet();
+                if(delay > 0) {
+                    delayedCount.incrementAndGet();
+                }
+                return delay;
+            }
+        }
+    }
+
+    public final long getAvailablePermits() {
+        long debt = Math.max(0L, theoreticalArrival.get() - System.nanoTime());
+        return Math.max(0L, (burstNanos - debt) / intervalNanos);
+    }
+
+    public final long getGrantedCount() {
+        return grantedCount.get();
+    }
+
+    public final long getDelayedCount() {
+        return delayedCount.get();
+    }
+
+    public final long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
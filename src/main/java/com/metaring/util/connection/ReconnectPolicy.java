@@ -0,0 +1,70 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+public final class ReconnectPolicy {
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+
+    private double multiplier = 2.0;
+    private double jitter = 0.5;
+    private int maxAttempts = -1;
+
+    private ReconnectPolicy(long initialDelayMillis, long maxDelayMillis) {
+        this.initialDelayMillis = Math.max(1, initialDelayMillis);
+        this.maxDelayMillis = Math.max(this.initialDelayMillis, maxDelayMillis);
+    }
+
+    public static final ReconnectPolicy exponential(long initialDelay, long maxDelay, TimeUnit unit) {
+        return new ReconnectPolicy(unit.toMillis(initialDelay), unit.toMillis(maxDelay));
+    }
+
+    public final ReconnectPolicy multiplier(double multiplier) {
+        if(multiplier < 1.0) {
+            throw new IllegalArgumentException("Multiplier must be at least 1: " + multiplier);
+        }
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    public final ReconnectPolicy jitter(double jitter) {
+        if(jitter < 0.0 || jitter > 1.0) {
+            throw new IllegalArgumentException("Jitter must be between 0 and 1: " + jitter);
+        }
+        this.jitter = jitter;
+        return this;
+    }
+
+    public final ReconnectPolicy maxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    final boolean isExhausted(int attempt) {
+        return maxAttempts >= 0 && attempt >= maxAttempts;
+    }
+
+    final long delayMillis(int attempt) {
+        double delay = initialDelayMillis * Math.pow(multiplier, Math.min(attempt, 62));
+        long capped = (long) Math.min(delay, maxDelayMillis);
+        return capped - (long) (capped * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.metaring.framework.functionality.FunctionalityInfo;
+import com.metaring.framework.type.DataRepresentation;
+
+public final class ResponseCache {
+
+    private static final long ENTRY_OVERHEAD = 128L;
+
+    private final Map<CallKey, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Long> invalidations = new HashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final long maximumWeight;
+
+    private long weight;
+    private long generation;
+    private long invalidatedAll;
+
+    private ResponseCache(long maximumWeight) {
+        if(maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive: " + maximumWeight);
+        }
+        this.maximumWeight = maximumWeight;
+    }
+
+    public static final ResponseCache create(long maximumWeightBytes) {
+        return new ResponseCache(maximumWeightBytes);
+    }
+
+    final synchronized LazyFunctionalityExecutionResult get(CallKey key) {
+        Entry entry = entries.get(key);
+        if(entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if(entry.expiresAt - System.nanoTime() <= 0) {
+            entries.remove(key);
+            weight -= entry.weight;
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.result;
+    }
+
+    final synchronized long generation() {
+        return generation;
+    }
+
+    final synchronized void put(CallKey key, LazyFunctionalityExecutionResult result, long ttlNanos, long generation) {
+        Long invalidated = invalidations.get(key.functionalityName);
+        if(invalidatedAll > generation || (invalidated != null && invalidated > generation)) {
+            return;
+        }
+        long entryWeight = ENTRY_OVERHEAD + key.weight() + result.weight();
+        if(entryWeight > maximumWeight) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(result, entryWeight, System.nanoTime() + ttlNanos));
+        if(previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entryWeight;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while(weight > maximumWeight && eldest.hasNext()) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    public final synchronized void invalidate(FunctionalityInfo functionalityInfo) {
+        String functionalityName = functionalityInfo.getFunctionalityFullyQualifiedName();
+        invalidations.put(functionalityName, ++generation);
+        Iterator<Map.Entry<CallKey, Entry>> iterator = entries.entrySet().iterator();
+        while(iterator.hasNext()) {
+            Map.Entry<CallKey, Entry> entry = iterator.next();
+            if(entry.getKey().functionalityName.equals(functionalityName)) {
+                weight -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    public final void invalidate(FunctionalityInfo functionalityInfo, DataRepresentation param) {
+        CallKey key = CallKey.of(functionalityInfo.getFunctionalityFullyQualifiedName(), param);
+        synchronized(this) {
+            invalidations.put(key.functionalityName, ++generation);
+            Entry entry = entries.remove(key);
+            if(entry != null) {
+                weight -= entry.weight;
+            }
+        }
+    }
+
+    public final synchronized void invalidateAll() {
+        invalidatedAll = ++generation;
+        invalidations.clear();
+        entries.clear();
+        weight = 0;
+    }
+
+    public final synchronized int size() {
+        return entries.size();
+    }
+
+    public final synchronized long getWeight() {
+        return weight;
+    }
+
+    public final long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public final long getHitCount() {
+        return hitCount.get();
+    }
+
+    public final long getMissCount() {
+        return missCount.get();
+    }
+
+    public final long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private static final class Entry {
+
+        private final LazyFunctionalityExecutionResult result;
+        private final long weight;
+        private final long expiresAt;
+
+        private Entry(LazyFunctionalityExecutionResult result, long weight, long expiresAt) {
+            this.result = result;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import com.metaring.framework.type.DataRepresentation;
+
+final class RpcRequestWriter {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_CAPACITY));
+
+    private RpcRequestWriter() {
+    }
+
+    static final String json(AuthEnvelopes.Envelope envelope, String functionalityName, DataRepresentation functionalityParam, long id) {
+        StringBuilder json = BUFFER.get();
+        json.setLength(0);
+        if(envelope != null) {
+            json.append(envelope.prefix);
+        }
+        SockJSFrameEncoder.appendQuoted(json.append("{\"name\":"), functionalityName);
+        if(functionalityParam != null) {
+            json.append(",\"param\":").append(functionalityParam.toJson());
+        }
+        if(envelope != null) {
+            json.append(envelope.suffix);
+        }
+        return release(json, json.append(",\"id\":").append(id).append('}').toString());
+    }
+
+    static final String frame(AuthEnvelopes.Envelope envelope, String functionalityName, DataRepresentation functionalityParam, long id) {
+        StringBuilder frame = BUFFER.get();
+        frame.setLength(0);
+        frame.append("[\"");
+        if(envelope != null) {
+            frame.append(envelope.escapedPrefix);
+        }
+        SockJSFrameEncoder.appendDoubleQuoted(frame.append("{\\\"name\\\":"), functionalityName);
+        if(functionalityParam != null) {
+            SockJSFrameEncoder.appendEscaped(frame.append(",\\\"param\\\":"), functionalityParam.toJson());
+        }
+        if(envelope != null) {
+            frame.append(envelope.escapedSuffix);
+        }
+        return release(frame, frame.append(",\\\"id\\\":").append(id).append("}\"]").toString());
+    }
+
+    private static final String release(StringBuilder buffer, String request) {
+        if(buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.set(new StringBuilder(INITIAL_CAPACITY));
+        }
+        return request;
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.concurrent.TimeoutException;
+
+public final class RpcTimeoutException extends TimeoutException {
+
+    private static final long serialVersionUID = -2785143371196815326L;
+
+    private final long callId;
+    private final String functionalityName;
+    private final long timeoutMillis;
+
+    RpcTimeoutException(long callId, String functionalityName, long timeoutMillis) {
+        super("Call " + callId + " to " + functionalityName + " timed out after " + timeoutMillis + " ms");
+        this.callId = callId;
+        this.functionalityName = functionalityName;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public final long getCallId() {
+        return callId;
+    }
+
+    public final String getFunctionalityName() {
+        return functionalityName;
+    }
+
+    public final long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+}
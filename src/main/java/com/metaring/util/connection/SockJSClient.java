@@ -20,18 +20,28 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ServerHandshake;
 
-import com.metaring.framework.Tools;
-import com.metaring.framework.type.DataRepresentation;
-
 public final class SockJSClient {
 
     private Consumer<SockJSClient> onOpen;
@@ -46,9 +56,32 @@ public final class SockJSClient {
     private BiConsumer<SockJSClient, Throwable> onError;
     private Consumer<Throwable> onErrorSingle;
 
+    private BiConsumer<SockJSClient, Throwable> onMessageError;
+    private Consumer<Throwable> onMessageErrorSingle;
+
     private Consumer<SockJSCloseData> onClose;
 
-    private SockJS sockJS;
+    private static final int DEFAULT_TIMEOUT_MILLIS = 10_000;
+    private static final int DEFAULT_OUTBOX_CAPACITY = 1024;
+
+    private final String connection;
+    private final int timeoutMillis;
+    private final Transport transport;
+
+    private volatile SockJS sockJS;
+
+    private volatile SockJSWriteCoalescer coalescer;
+
+    private volatile RingBufferOutbox<String> outbox = new RingBufferOutbox<>(DEFAULT_OUTBOX_CAPACITY);
+    private volatile OutboxOverflowPolicy outboxOverflowPolicy = OutboxOverflowPolicy.REJECT;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile String unsent;
+    private Consumer<String> onOutboxDrop;
+    private final Map<String, Runnable> onWritten = new ConcurrentHashMap<>();
+
+    private volatile BufferPool bufferPool = BufferPool.SHARED;
+
+    private volatile CompressionOptions compression;
 
     public final SockJSClient onOpen(Consumer<SockJSClient> onOpen) {
         this.onOpen = onOpen;
@@ -98,6 +131,18 @@ public final class SockJSClient {
         return this;
     }
 
+    public final SockJSClient onMessageError(BiConsumer<SockJSClient, Throwable> onMessageError) {
+        this.onMessageError = onMessageError;
+        this.onMessageErrorSingle = null;
+        return this;
+    }
+
+    public final SockJSClient onMessageError(Consumer<Throwable> onMessageErrorSingle) {
+        this.onMessageErrorSingle = onMessageErrorSingle;
+        this.onMessageError = null;
+        return this;
+    }
+
     public final SockJSClient onClose(Consumer<SockJSCloseData> onClose) {
         this.onClose = onClose;
         return this;
@@ -128,12 +173,262 @@ public final class SockJSClient {
         return this;
     }
 
-    public final SockJSClient send(String text) {
-        this.sockJS.send(text);
+    public final SockJSClient send(CharSequence text) {
+        return sendFrame(transport == Transport.WEBSOCKET ? text.toString() : SockJSFrameEncoder.encode(text));
+    }
+
+    public final SockJSClient send(ByteBuffer utf8) {
+        if (coalescer == null && writeDirect(sockJS -> sockJS.writeUtf8(utf8))) {
+            return this;
+        }
+        return send(StandardCharsets.UTF_8.decode(utf8.duplicate()));
+    }
+
+    public final SockJSClient compression(CompressionOptions compression) {
+        this.compression = compression;
+        SockJS sockJS = this.sockJS;
+        if (!sockJS.started) {
+            this.sockJS = newSockJS(sockJS.connection);
+        }
+        return this;
+    }
+
+    public final CompressionStats getCompressionStats() {
+        return this.sockJS.compressionStats;
+    }
+
+    public final SockJSClient bufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        return this;
+    }
+
+    final SockJSClient sendFrame(String frame) {
+        return sendFrame(frame, null);
+    }
+
+    final SockJSClient sendFrame(String frame, Runnable onWritten) {
+        SockJSWriteCoalescer coalescer = this.coalescer;
+        if (coalescer != null && this.sockJS.isOpen()) {
+            coalescer.addFrame(frame, onWritten);
+            return this;
+        }
+        return transmit(frame, onWritten);
+    }
+
+    private final SockJSClient transmit(String frame, Runnable onWritten) {
+        if (writeDirect(sockJS -> sockJS.sendFrame(frame))) {
+            if (onWritten != null) {
+                onWritten.run();
+            }
+            return this;
+        }
+        if (onWritten != null) {
+            this.onWritten.put(frame, onWritten);
+        }
+        try {
+            enqueue(frame);
+        }
+        catch (RejectedExecutionException e) {
+            this.onWritten.remove(frame);
+            throw e;
+        }
+        if (this.sockJS.isOpen()) {
+            drainOutbox();
+        }
+        return this;
+    }
+
+    private final boolean writeDirect(Consumer<SockJS> writer) {
+        if (hasQueued() || !draining.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            SockJS sockJS = this.sockJS;
+            if (!sockJS.isOpen() || hasQueued()) {
+                return false;
+            }
+            writer.accept(sockJS);
+        }
+        catch (WebsocketNotConnectedException e) {
+            return false;
+        }
+        finally {
+            draining.set(false);
+        }
+        if (hasQueued()) {
+            drainOutbox();
+        }
+        return true;
+    }
+
+    public final SockJSClient outbox(int capacity, OutboxOverflowPolicy overflowPolicy) {
+        RingBufferOutbox<String> previous = this.outbox;
+        RingBufferOutbox<String> outbox = new RingBufferOutbox<>(capacity);
+        this.outboxOverflowPolicy = overflowPolicy;
+        this.outbox = outbox;
+        String frame;
+        while ((frame = previous.poll()) != null) {
+            enqueue(frame);
+        }
+        return this;
+    }
+
+    public final SockJSClient onOutboxDrop(Consumer<String> onOutboxDrop) {
+        this.onOutboxDrop = onOutboxDrop;
+        return this;
+    }
+
+    public final int getOutboxSize() {
+        return outbox.size() + (unsent == null ? 0 : 1);
+    }
+
+    public final int getOutboxCapacity() {
+        return outbox.capacity();
+    }
+
+    public final List<String> clearOutbox() {
+        List<String> cleared = new ArrayList<>();
+        String frame = unsent;
+        unsent = null;
+        if (frame != null) {
+            onWritten.remove(frame);
+            unframe(frame, cleared::add);
+        }
+        while ((frame = outbox.poll()) != null) {
+            onWritten.remove(frame);
+            unframe(frame, cleared::add);
+        }
+        return cleared;
+    }
+
+    private final void enqueue(String frame) {
+        RingBufferOutbox<String> outbox = this.outbox;
+        while (!outbox.offer(frame)) {
+            if (outboxOverflowPolicy == OutboxOverflowPolicy.REJECT) {
+                throw new RejectedExecutionException("SockJS: outbox is full (" + outbox.capacity() + " messages)");
+            }
+            String dropped = outbox.poll();
+            if (dropped != null) {
+                onWritten.remove(dropped);
+            }
+            if (dropped != null && onOutboxDrop != null) {
+                unframe(dropped, onOutboxDrop);
+            }
+        }
+    }
+
+    private final void unframe(String frame, Consumer<String> sink) {
+        if (transport == Transport.WEBSOCKET) {
+            sink.accept(frame);
+            return;
+        }
+        SockJSFrameDecoder.decodeArray(frame, 0, sink);
+    }
+
+    private final void drainOutbox() {
+        while (hasQueued() && draining.compareAndSet(false, true)) {
+            try {
+                SockJS sockJS;
+                String frame;
+                while ((sockJS = this.sockJS).isOpen() && (frame = nextQueued()) != null) {
+                    try {
+                        sockJS.sendFrame(frame);
+                    }
+                    catch (WebsocketNotConnectedException e) {
+                        unsent = frame;
+                        break;
+                    }
+                    written(frame);
+                }
+            }
+            finally {
+                draining.set(false);
+            }
+            if (!this.sockJS.isOpen()) {
+                return;
+            }
+        }
+    }
+
+    private final boolean hasQueued() {
+        return unsent != null || !outbox.isEmpty();
+    }
+
+    private final String nextQueued() {
+        String frame = unsent;
+        if (frame != null) {
+            unsent = null;
+            return frame;
+        }
+        return outbox.poll();
+    }
+
+    private final void written(String frame) {
+        if (onWritten.isEmpty()) {
+            return;
+        }
+        Runnable onWritten = this.onWritten.remove(frame);
+        if (onWritten != null) {
+            onWritten.run();
+        }
+    }
+
+    public final SockJSClient coalesce(long flushWindow, TimeUnit unit, int maxMessages, int maxBytes) {
+        if (transport == Transport.WEBSOCKET) {
+            throw new IllegalStateException("WebSocket: write coalescing needs SockJS array framing");
+        }
+        flush();
+        this.coalescer = new SockJSWriteCoalescer(this::transmit, unit.toMillis(flushWindow), maxMessages, maxBytes);
+        return this;
+    }
+
+    public final SockJSClient noCoalescing() {
+        flush();
+        this.coalescer = null;
+        return this;
+    }
+
+    public final SockJSClient flush() {
+        SockJSWriteCoalescer coalescer = this.coalescer;
+        if (coalescer != null) {
+            coalescer.flush();
+        }
+        return this;
+    }
+
+    public final SockJSClient reconnect() {
+        return BootstrapCache.join(reconnectAsync());
+    }
+
+    public final CompletableFuture<SockJSClient> reconnectAsync() {
+        if (transport == Transport.WEBSOCKET) {
+            return CompletableFuture.completedFuture(replaceSession(this.sockJS.connection));
+        }
+        return info(connection, timeoutMillis).thenApply(info -> replaceSession(info.newSessionUrl()));
+    }
+
+    private final synchronized SockJSClient replaceSession(String wsConnection) {
+        SockJS previous = this.sockJS;
+        this.sockJS = newSockJS(wsConnection);
+        previous.close();
+        this.sockJS.connect();
         return this;
     }
 
+    public final Transport getTransport() {
+        return transport;
+    }
+
+    public final boolean isOpen() {
+        return this.sockJS.isOpen();
+    }
+
+    final SockJS getSession() {
+        return this.sockJS;
+    }
+
     public final SockJSClient disconnect() {
+        flush();
         try {
             this.sockJS.closeBlocking();
         }
@@ -143,15 +438,37 @@ public final class SockJSClient {
         return this;
     }
 
-    private SockJSClient(String connection) {
-        connection = connection.trim();
-        if (!connection.endsWith("/")) {
-            connection += "/";
+    final void close() {
+        this.sockJS.close();
+    }
+
+    private SockJSClient(String connection, int timeoutMillis, String wsConnection, Transport transport) {
+        this.connection = connection;
+        this.timeoutMillis = timeoutMillis;
+        this.transport = transport;
+        this.sockJS = newSockJS(wsConnection);
+    }
+
+    private final SockJS newSockJS(String wsConnection) {
+        CompressionOptions compression = this.compression;
+        CompressionStats compressionStats = new CompressionStats();
+        Draft draft = compression == null ? new Draft_6455() : new Draft_6455(compression.newExtension(compressionStats));
+        return new SockJS(wsConnection, draft, compressionStats);
+    }
+
+    static final CompletableFuture<SockJSInfo> info(String connection, int timeoutMillis) {
+        String endpoint = connection.trim();
+        if (!endpoint.endsWith("/")) {
+            endpoint += "/";
         }
-        connection += "info?=" + System.currentTimeMillis();
+        String infoUrl = endpoint + "info";
+        return BootstrapCache.get(infoUrl, () -> fetchInfo(infoUrl, timeoutMillis));
+    }
+
+    private static final SockJSInfo fetchInfo(String infoUrl, int timeoutMillis) {
         String wsConnection = "ws";
         try {
-            URL url = new URL(connection);
+            URL url = new URL(infoUrl + "?=" + System.currentTimeMillis());
             if (url.getProtocol().toLowerCase().equals("https")) {
                 wsConnection += "s";
             }
@@ -165,20 +482,17 @@ public final class SockJSClient {
                 wsConnection += "/";
             }
             URLConnection urlConnection = url.openConnection();
+            urlConnection.setConnectTimeout(timeoutMillis);
+            urlConnection.setReadTimeout(timeoutMillis);
             urlConnection.connect();
             try (InputStream inputStream = urlConnection.getInputStream()) {
                 try (InputStreamReader inputStreamReader = new InputStreamReader(inputStream)) {
                     try (BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
-                        String entropy = Tools.FACTORY_DATA_REPRESENTATION.fromJson(bufferedReader.readLine()).getDigit("entropy").toString();
-                        int halfLength = entropy.length() / 2;
-                        wsConnection += entropy.substring(0, halfLength);
-                        wsConnection += "/";
-                        wsConnection += entropy.substring(halfLength);
-                        wsConnection += "/websocket";
+                        JsonFields info = JsonFields.scan(bufferedReader.readLine());
+                        return new SockJSInfo(wsConnection, !"false".equals(info.raw("websocket")), "true".equals(info.raw("cookie_needed")), info.raw("origins"));
                     }
                 }
             }
-            this.sockJS = new SockJS(wsConnection);
         }
         catch (Exception e) {
             throw new RuntimeException(e);
@@ -186,7 +500,42 @@ public final class SockJSClient {
     }
 
     public static final SockJSClient create(String connection) {
-        return new SockJSClient(connection);
+        return create(connection, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public static final SockJSClient create(String connection, long timeout, TimeUnit unit) {
+        return BootstrapCache.join(createAsync(connection, timeout, unit));
+    }
+
+    public static final CompletableFuture<SockJSClient> createAsync(String connection) {
+        return createAsync(connection, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public static final CompletableFuture<SockJSClient> createAsync(String connection, long timeout, TimeUnit unit) {
+        return createAsync(connection, Transport.SOCKJS, timeout, unit);
+    }
+
+    public static final SockJSClient create(String connection, Transport transport) {
+        return BootstrapCache.join(createAsync(connection, transport, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    public static final CompletableFuture<SockJSClient> createAsync(String connection, Transport transport, long timeout, TimeUnit unit) {
+        int timeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout));
+        if (transport == Transport.WEBSOCKET) {
+            return CompletableFuture.completedFuture(new SockJSClient(connection, timeoutMillis, webSocketUrl(connection), transport));
+        }
+        return info(connection, timeoutMillis).thenApply(info -> new SockJSClient(connection, timeoutMillis, info.newSessionUrl(), transport));
+    }
+
+    static final String webSocketUrl(String connection) {
+        String url = connection.trim();
+        if (url.regionMatches(true, 0, "https://", 0, 8)) {
+            return "wss://" + url.substring(8);
+        }
+        if (url.regionMatches(true, 0, "http://", 0, 7)) {
+            return "ws://" + url.substring(7);
+        }
+        return url;
     }
 
     public final class SockJSCloseData {
@@ -211,12 +560,32 @@ public final class SockJSClient {
         private static final String SOCKJS_H = "h";
         private static final String SOCKJS_A = "a";
 
-        private SockJS(String connection) throws URISyntaxException {
-            super(new URI(connection));
+        private final String connection;
+        private final CompressionStats compressionStats;
+        private volatile boolean started;
+
+        private SockJS(String connection, Draft draft, CompressionStats compressionStats) {
+            super(URI.create(connection), draft, null, timeoutMillis);
+            this.connection = connection;
+            this.compressionStats = compressionStats;
+        }
+
+        @Override
+        public final void connect() {
+            started = true;
+            super.connect();
+        }
+
+        private final boolean isCurrent() {
+            return sockJS == this;
         }
 
         @Override
         public final void onOpen(ServerHandshake srverHandshake) {
+            if (!isCurrent()) {
+                return;
+            }
+            drainOutbox();
             if (onOpen != null) {
                 onOpen.accept(SockJSClient.this);
                 return;
@@ -229,6 +598,13 @@ public final class SockJSClient {
 
         @Override
         public final void onMessage(String message) {
+            if (!isCurrent()) {
+                return;
+            }
+            if (transport == Transport.WEBSOCKET) {
+                dispatch(message);
+                return;
+            }
             if (message.equals(SOCKJS_O)) {
                 return;
             }
@@ -242,29 +618,54 @@ public final class SockJSClient {
                 return;
             }
             if (onMessage != null || onMessageSingle != null) {
-                String response = "";
                 if (message.startsWith(SOCKJS_A)) {
-                    String m = message.substring(1);
-                    if (!m.trim().isEmpty() && !m.trim().replace(" ", "").equals("[]")) {
-                        DataRepresentation rep = Tools.FACTORY_DATA_REPRESENTATION.fromJson(m);
-                        if (!rep.isSimple() && !rep.isEmpty()) {
-                            rep = rep.first();
-                        }
-                        response = rep.asText();
+                    try {
+                        SockJSFrameDecoder.decodeArray(message, SOCKJS_A.length(), this::dispatch);
+                    }
+                    catch (Exception e) {
+                        messageError(e);
                     }
                 }
+                return;
+            }
+        }
+
+        private final void dispatch(String response) {
+            try {
                 if (onMessage != null) {
                     onMessage.accept(SockJSClient.this, response);
                 }
                 if (onMessageSingle != null) {
                     onMessageSingle.accept(response);
                 }
-                return;
+            }
+            catch (Exception e) {
+                messageError(e);
             }
         }
 
+        private final void messageError(Throwable t) {
+            try {
+                if (onMessageError != null) {
+                    onMessageError.accept(SockJSClient.this, t);
+                    return;
+                }
+                if (onMessageErrorSingle != null) {
+                    onMessageErrorSingle.accept(t);
+                    return;
+                }
+            }
+            catch (Exception e) {
+                t = e;
+            }
+            CallbackExecutors.uncaught(t);
+        }
+
         @Override
         public final void onClose(int status, String reason, boolean remote) {
+            if (!isCurrent()) {
+                return;
+            }
             if (onClose != null) {
                 onClose.accept(new SockJSCloseData(SockJSClient.this, status, reason, remote));
                 return;
@@ -273,6 +674,9 @@ public final class SockJSClient {
 
         @Override
         public final void onError(Exception t) {
+            if (!isCurrent()) {
+                return;
+            }
             t.printStackTrace();
             if (onError != null) {
                 onError.accept(SockJSClient.this, t);
@@ -287,11 +691,46 @@ public final class SockJSClient {
 
         @Override
         public final void send(String text) {
+            write(transport == Transport.WEBSOCKET ? text : SockJSFrameEncoder.encode(text));
+        }
+
+        private final void write(String frame) {
+            SockJSWriteCoalescer coalescer = SockJSClient.this.coalescer;
+            if (coalescer != null) {
+                coalescer.addFrame(frame);
+                return;
+            }
+            sendFrame(frame);
+        }
+
+        private final void writeUtf8(ByteBuffer utf8) {
+            if (transport == Transport.WEBSOCKET) {
+                sendPayload(utf8.duplicate());
+                return;
+            }
+            try (BufferPool.Lease lease = bufferPool.acquire(Utf8Frames.framedLength(utf8))) {
+                sendPayload(Utf8Frames.frame(utf8, lease.buffer));
+            }
+        }
+
+        private final void sendFrame(String frame) {
+            try (BufferPool.Lease lease = bufferPool.acquire(Utf8Frames.encodedLength(frame))) {
+                sendPayload(Utf8Frames.encode(frame, lease.buffer));
+            }
+        }
+
+        private final void sendPayload(ByteBuffer payload) {
             try {
-                super.send(Tools.FACTORY_DATA_REPRESENTATION.create().add(text).toJson());
+                TextFrame textFrame = new TextFrame();
+                textFrame.setPayload(payload);
+                textFrame.setFin(true);
+                super.sendFrame(textFrame);
+            }
+            catch (WebsocketNotConnectedException e) {
+                throw e;
             }
             catch (Exception e) {
-                onError(e);
+                messageError(e);
             }
         }
     }
@@ -0,0 +1,67 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.function.Consumer;
+
+final class SockJSFrameDecoder {
+
+    private SockJSFrameDecoder() {
+    }
+
+    static final int decodeArray(String frame, int offset, Consumer<String> sink) {
+        int length = frame.length();
+        int i = JsonFields.skipWhitespace(frame, offset, length);
+        if(i >= length || frame.charAt(i) != '[') {
+            throw new IllegalArgumentException("SockJS: expected array frame but got " + frame);
+        }
+        int count = 0;
+        i = JsonFields.skipWhitespace(frame, i + 1, length);
+        if(i < length && frame.charAt(i) == ']') {
+            return count;
+        }
+        StringBuilder buffer = new StringBuilder();
+        while(i < length) {
+            if(frame.charAt(i) == '"') {
+                buffer.setLength(0);
+                i = JsonFields.readString(frame, i + 1, length, buffer);
+                sink.accept(buffer.toString());
+            } else {
+                int end = JsonFields.skipValue(frame, i, length);
+                if(end == i) {
+                    throw new IllegalArgumentException("SockJS: expected a value at " + i + " in " + frame);
+                }
+                sink.accept(frame.substring(i, end));
+                i = end;
+            }
+            count++;
+            i = JsonFields.skipWhitespace(frame, i, length);
+            if(i >= length) {
+                break;
+            }
+            char c = frame.charAt(i);
+            if(c == ']') {
+                return count;
+            }
+            if(c != ',') {
+                throw new IllegalArgumentException("SockJS: unexpected '" + c + "' at " + i + " in " + frame);
+            }
+            i = JsonFields.skipWhitespace(frame, i + 1, length);
+        }
+        throw new IllegalArgumentException("SockJS: unterminated array frame " + frame);
+    }
+}
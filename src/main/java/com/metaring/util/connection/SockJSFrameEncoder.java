@@ -0,0 +1,103 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+final class SockJSFrameEncoder {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private SockJSFrameEncoder() {
+    }
+
+    static final String encode(CharSequence message) {
+        StringBuilder frame = new StringBuilder(message.length() + 16);
+        frame.append('[');
+        appendQuoted(frame, message);
+        frame.append(']');
+        return frame.toString();
+    }
+
+    static final StringBuilder appendQuoted(StringBuilder frame, CharSequence message) {
+        frame.append('"');
+        return appendEscaped(frame, message).append('"');
+    }
+
+    static final StringBuilder appendEscaped(StringBuilder frame, CharSequence message) {
+        int length = message.length();
+        int start = 0;
+        for(int i = 0; i < length; i++) {
+            char c = message.charAt(i);
+            if(c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') {
+                continue;
+            }
+            frame.append(message, start, i);
+            start = i + 1;
+            appendEscape(frame, c, "\\");
+        }
+        return frame.append(message, start, length);
+    }
+
+    static final StringBuilder appendDoubleQuoted(StringBuilder frame, CharSequence message) {
+        frame.append("\\\"");
+        int length = message.length();
+        int start = 0;
+        for(int i = 0; i < length; i++) {
+            char c = message.charAt(i);
+            if(c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') {
+                continue;
+            }
+            frame.append(message, start, i);
+            start = i + 1;
+            if(c == '"' || c == '\\') {
+                frame.append("\\\\\\").append(c);
+            } else {
+                appendEscape(frame, c, "\\\\");
+            }
+        }
+        return frame.append(message, start, length).append("\\\"");
+    }
+
+    private static final void appendEscape(StringBuilder frame, char c, String backslash) {
+        frame.append(backslash);
+        switch(c) {
+            case '"':
+                frame.append('"');
+                break;
+            case '\\':
+                frame.append('\\');
+                break;
+            case '\n':
+                frame.append('n');
+                break;
+            case '\r':
+                frame.append('r');
+                break;
+            case '\t':
+                frame.append('t');
+                break;
+            case '\b':
+                frame.append('b');
+                break;
+            case '\f':
+                frame.append('f');
+                break;
+            default:
+                frame.append('u').append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF]).append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                break;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class SockJSInfo {
+
+    private static final char[] SESSION_CHARACTERS = "abcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+    private final String webSocketBase;
+    private final boolean webSocket;
+    private final boolean cookieNeeded;
+    private final String origins;
+
+    SockJSInfo(String webSocketBase, boolean webSocket, boolean cookieNeeded, String origins) {
+        this.webSocketBase = webSocketBase;
+        this.webSocket = webSocket;
+        this.cookieNeeded = cookieNeeded;
+        this.origins = origins;
+    }
+
+    public final String getWebSocketBase() {
+        return webSocketBase;
+    }
+
+    public final boolean isWebSocket() {
+        return webSocket;
+    }
+
+    public final boolean isCookieNeeded() {
+        return cookieNeeded;
+    }
+
+    public final String getOrigins() {
+        return origins;
+    }
+
+    final String newSessionUrl() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder url = new StringBuilder(webSocketBase.length() + 24).append(webSocketBase);
+        url.append(random.nextInt(1000));
+        url.append('/');
+        for(int i = 0; i < 8; i++) {
+            url.append(SESSION_CHARACTERS[random.nextInt(SESSION_CHARACTERS.length)]);
+        }
+        return url.append("/websocket").toString();
+    }
+}
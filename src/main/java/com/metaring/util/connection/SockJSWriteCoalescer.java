@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+final class SockJSWriteCoalescer {
+
+    private final BiConsumer<String, Runnable> writer;
+    private final long flushWindowMillis;
+    private final int maxMessages;
+    private final int maxBytes;
+
+    private final StringBuilder frame = new StringBuilder();
+    private List<Runnable> onWritten;
+    private int messages;
+    private HashedWheelTimer.Timeout scheduledFlush;
+
+    SockJSWriteCoalescer(BiConsumer<String, Runnable> writer, long flushWindowMillis, int maxMessages, int maxBytes) {
+        this.writer = writer;
+        this.flushWindowMillis = flushWindowMillis;
+        this.maxMessages = maxMessages > 0 ? maxMessages : Integer.MAX_VALUE;
+        this.maxBytes = maxBytes > 0 ? maxBytes : Integer.MAX_VALUE;
+    }
+
+    final void addFrame(String encoded) {
+        addFrame(encoded, null);
+    }
+
+    final synchronized void addFrame(String encoded, Runnable onWritten) {
+        frame.append(messages == 0 ? '[' : ',').append(encoded, 1, encoded.length() - 1);
+        messages++;
+        if(onWritten != null) {
+            if(this.onWritten == null) {
+                this.onWritten = new ArrayList<>();
+            }
+            this.onWritten.add(onWritten);
+        }
+        if(messages >= maxMessages || frame.length() >= maxBytes) {
+            flush();
+            return;
+        }
+        if(messages == 1 && flushWindowMillis > 0) {
+            scheduledFlush = HashedWheelTimer.SHARED.schedule(this::flush, flushWindowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    final synchronized void flush() {
+        if(scheduledFlush != null) {
+            scheduledFlush.cancel();
+            scheduledFlush = null;
+        }
+        if(messages == 0) {
+            return;
+        }
+        String coalesced = frame.append(']').toString();
+        List<Runnable> onWritten = this.onWritten;
+        frame.setLength(0);
+        messages = 0;
+        this.onWritten = null;
+        writer.accept(coalesced, onWritten == null ? null : () -> onWritten.forEach(Runnable::run));
+    }
+
+    final synchronized int size() {
+        return messages;
+    }
+}
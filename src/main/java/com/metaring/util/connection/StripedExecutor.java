@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class StripedExecutor {
+
+    private static final int BATCH = 64;
+
+    private final Executor executor;
+    private final Lane[] lanes;
+
+    StripedExecutor(Executor executor, int stripes) {
+        this.executor = executor;
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.lanes = new Lane[size];
+        for(int i = 0; i < size; i++) {
+            this.lanes[i] = new Lane();
+        }
+    }
+
+    public final void execute(Object key, Runnable task) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= hash >>> 16;
+        lanes[hash & (lanes.length - 1)].execute(task);
+    }
+
+    public final Executor executor() {
+        return executor;
+    }
+
+    private final class Lane implements Runnable {
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final void execute(Runnable task) {
+            tasks.add(task);
+            schedule();
+        }
+
+        private final void schedule() {
+            if(!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                }
+                catch(RuntimeException e) {
+                    scheduled.set(false);
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public final void run() {
+            try {
+                Runnable task;
+                for(int i = 0; i < BATCH && (task = tasks.poll()) != null; i++) {
+                    try {
+                        task.run();
+                    }
+                    catch(Throwable e) {
+                        CallbackExecutors.uncaught(e);
+                    }
+                }
+            }
+            finally {
+                scheduled.set(false);
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+final class TopicListeners {
+
+    private TopicListeners() {
+    }
+
+    static final TopicListener direct(Consumer<LazyFunctionalityExecutionResult> consumer) {
+        return (subscription, topic, payload, executor) -> executor.execute(topic, () -> {
+            if(subscription.isActive()) {
+                subscription.delivered();
+                consumer.accept(payload);
+            }
+        });
+    }
+
+    static final TopicListener conflating(Function<LazyFunctionalityExecutionResult, ?> keyExtractor, Consumer<LazyFunctionalityExecutionResult> consumer) {
+        return new Conflating(keyExtractor, consumer);
+    }
+
+    private static final class Conflating implements TopicListener {
+
+        private final Function<LazyFunctionalityExecutionResult, ?> keyExtractor;
+        private final Consumer<LazyFunctionalityExecutionResult> consumer;
+        private final Map<Object, AtomicReference<LazyFunctionalityExecutionResult>> latest = new ConcurrentHashMap<>();
+
+        private Conflating(Function<LazyFunctionalityExecutionResult, ?> keyExtractor, Consumer<LazyFunctionalityExecutionResult> consumer) {
+            this.keyExtractor = keyExtractor;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public final void onMessage(TopicSubscription subscription, String topic, LazyFunctionalityExecutionResult payload, StripedExecutor executor) {
+            Object key = keyExtractor == null ? topic : new ConflationKey(topic, keyExtractor.apply(payload));
+            AtomicReference<LazyFunctionalityExecutionResult> slot = latest.computeIfAbsent(key, k -> new AtomicReference<>());
+            if(slot.getAndSet(payload) != null) {
+                subscription.conflated();
+                return;
+            }
+            executor.execute(topic, () -> {
+                LazyFunctionalityExecutionResult freshest = slot.getAndSet(null);
+                if(slot.get() == null) {
+                    latest.remove(key, slot);
+                }
+                if(freshest != null && subscription.isActive()) {
+                    subscription.delivered();
+                    consumer.accept(freshest);
+                }
+            });
+        }
+    }
+
+    private static final class ConflationKey {
+
+        private final String topic;
+        private final Object key;
+
+        private ConflationKey(String topic, Object key) {
+            this.topic = topic;
+            this.key = key;
+        }
+
+        @Override
+        public final boolean equals(Object obj) {
+            if(!(obj instanceof ConflationKey)) {
+                return false;
+            }
+            ConflationKey other = (ConflationKey) obj;
+            return topic.equals(other.topic) && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public final int hashCode() {
+            return 31 * topic.hashCode() + Objects.hashCode(key);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public final class TopicPublisher<T> implements Publisher<T> {
+
+    private final TopicRegistry registry;
+    private final String pattern;
+    private final int bufferSize;
+    private final TopicOverflowStrategy overflowStrategy;
+    private final Executor executor;
+    private final Function<LazyFunctionalityExecutionResult, T> mapper;
+
+    TopicPublisher(TopicRegistry registry, String pattern, int bufferSize, TopicOverflowStrategy overflowStrategy, Executor executor, Function<LazyFunctionalityExecutionResult, T> mapper) {
+        if(bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.registry = registry;
+        this.pattern = pattern;
+        this.bufferSize = bufferSize;
+        this.overflowStrategy = overflowStrategy;
+        this.executor = executor;
+        this.mapper = mapper;
+    }
+
+    public final String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public final void subscribe(Subscriber<? super T> subscriber) {
+        if(subscriber == null) {
+            throw new NullPointerException("Subscriber must not be null");
+        }
+        new Demand<>(subscriber, bufferSize, overflowStrategy, executor, mapper).subscribe(registry, pattern);
+    }
+
+    private static final class Demand<T> implements Subscription, TopicListener, Runnable {
+
+        private final Subscriber<? super T> subscriber;
+        private final int bufferSize;
+        private final TopicOverflowStrategy overflowStrategy;
+        private final Executor executor;
+        private final Function<LazyFunctionalityExecutionResult, T> mapper;
+
+        private final Queue<LazyFunctionalityExecutionResult> buffer = new ArrayDeque<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile TopicSubscription topicSubscription;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        private boolean terminated;
+
+        private Demand(Subscriber<? super T> subscriber, int bufferSize, TopicOverflowStrategy overflowStrategy, Executor executor, Function<LazyFunctionalityExecutionResult, T> mapper) {
+            this.subscriber = subscriber;
+            this.bufferSize = bufferSize;
+            this.overflowStrategy = overflowStrategy;
+            this.executor = executor;
+            this.mapper = mapper;
+        }
+
+        private final void subscribe(TopicRegistry registry, String pattern) {
+            wip.set(1);
+            try {
+                subscriber.onSubscribe(this);
+            }
+            catch(Throwable e) {
+                cancel();
+                throw e;
+            }
+            if(!cancelled && error == null) {
+                try {
+                    topicSubscription = registry.add(pattern, this);
+                }
+                catch(IllegalArgumentException e) {
+                    error = e;
+                }
+                if(cancelled) {
+                    cancelTopic();
+                }
+            }
+            if(wip.decrementAndGet() != 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public final void onMessage(TopicSubscription subscription, String topic, LazyFunctionalityExecutionResult payload, StripedExecutor topicExecutor) {
+            synchronized(buffer) {
+                if(cancelled || error != null) {
+                    return;
+                }
+                if(buffer.size() >= bufferSize) {
+                    subscription.dropped();
+                    switch(overflowStrategy) {
+                        case DROP_NEWEST:
+                            return;
+                        case DROP_OLDEST:
+                            buffer.poll();
+                            break;
+                        case ERROR:
+                            buffer.clear();
+                            error = new IllegalStateException("Topic " + topic + ": subscriber buffer of " + bufferSize + " overflowed");
+                            subscription.unsubscribe();
+                            drain();
+                            return;
+                    }
+                }
+                buffer.add(payload);
+            }
+            drain();
+        }
+
+        @Override
+        public final void request(long n) {
+            if(n <= 0) {
+                error = new IllegalArgumentException("Reactive Streams rule 3.9: request must be positive but was " + n);
+                cancelTopic();
+                drain();
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                if(current == Long.MAX_VALUE) {
+                    return;
+                }
+                next = current + n;
+                if(next < 0) {
+                    next = Long.MAX_VALUE;
+                }
+            } while(!requested.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public final void cancel() {
+            cancelled = true;
+            cancelTopic();
+            synchronized(buffer) {
+                buffer.clear();
+            }
+        }
+
+        private final void cancelTopic() {
+            TopicSubscription topicSubscription = this.topicSubscription;
+            if(topicSubscription != null) {
+                topicSubscription.unsubscribe();
+            }
+        }
+
+        private final void drain() {
+            if(wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public final void run() {
+            int missed = 1;
+            while(true) {
+                long demand = requested.get();
+                long emitted = 0;
+                while(emitted != demand && !cancelled && !terminated) {
+                    LazyFunctionalityExecutionResult payload;
+                    synchronized(buffer) {
+                        payload = buffer.poll();
+                    }
+                    if(payload == null) {
+                        break;
+                    }
+                    TopicSubscription topicSubscription = this.topicSubscription;
+                    if(topicSubscription != null) {
+                        topicSubscription.delivered();
+                    }
+                    try {
+                        subscriber.onNext(mapper.apply(payload));
+                    }
+                    catch(Throwable e) {
+                        cancel();
+                        CallbackExecutors.uncaught(e);
+                        return;
+                    }
+                    emitted++;
+                }
+                Throwable error = this.error;
+                if(error != null && !cancelled && !terminated) {
+                    terminated = true;
+                    subscriber.onError(error);
+                }
+                if(emitted > 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+                if(missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
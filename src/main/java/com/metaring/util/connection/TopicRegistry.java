@@ -0,0 +1,130 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+final class TopicRegistry {
+
+    static final char SEPARATOR = '.';
+    static final String ANY_SEGMENT = "*";
+    static final String ANY_SEGMENTS = "#";
+
+    private final Node root = new Node();
+
+    final synchronized TopicSubscription add(String pattern, TopicListener listener) {
+        if(pattern.startsWith(ANY_SEGMENTS + SEPARATOR) || pattern.contains(SEPARATOR + ANY_SEGMENTS + SEPARATOR)) {
+            throw new IllegalArgumentException("'" + ANY_SEGMENTS + "' is only allowed as the last segment of a topic pattern: " + pattern);
+        }
+        TopicSubscription subscription = new TopicSubscription(this, pattern, listener);
+        Node node = root;
+        int from = 0;
+        while(true) {
+            int to = pattern.indexOf(SEPARATOR, from);
+            String segment = to < 0 ? pattern.substring(from) : pattern.substring(from, to);
+            node = node.children.computeIfAbsent(segment, key -> new Node());
+            if(to < 0) {
+                break;
+            }
+            from = to + 1;
+        }
+        node.subscriptions.add(subscription);
+        return subscription;
+    }
+
+    final synchronized void remove(TopicSubscription subscription) {
+        remove(root, subscription.getPattern(), 0, subscription);
+    }
+
+    final boolean isEmpty() {
+        return root.children.isEmpty();
+    }
+
+    final boolean hasSubscribers(String topic) {
+        boolean[] found = new boolean[1];
+        match(root, topic, 0, subscription -> found[0] = true);
+        return found[0];
+    }
+
+    final void dispatch(String topic, Consumer<TopicSubscription> sink) {
+        match(root, topic, 0, sink);
+    }
+
+    private static final void remove(Node node, String pattern, int from, TopicSubscription subscription) {
+        int to = pattern.indexOf(SEPARATOR, from);
+        String segment = to < 0 ? pattern.substring(from) : pattern.substring(from, to);
+        Node child = node.children.get(segment);
+        if(child == null) {
+            return;
+        }
+        if(to < 0) {
+            child.subscriptions.remove(subscription);
+        } else {
+            remove(child, pattern, to + 1, subscription);
+        }
+        if(child.subscriptions.isEmpty() && child.children.isEmpty()) {
+            node.children.remove(segment, child);
+        }
+    }
+
+    private static final void match(Node node, String topic, int from, Consumer<TopicSubscription> sink) {
+        Node rest = node.children.get(ANY_SEGMENTS);
+        if(rest != null) {
+            collect(rest.subscriptions, sink);
+        }
+        if(from > topic.length()) {
+            return;
+        }
+        int to = topic.indexOf(SEPARATOR, from);
+        int next = to < 0 ? topic.length() + 1 : to + 1;
+        Node exact = node.children.get(to < 0 ? topic.substring(from) : topic.substring(from, to));
+        if(exact != null) {
+            matchNext(exact, topic, next, sink);
+        }
+        Node any = node.children.get(ANY_SEGMENT);
+        if(any != null) {
+            matchNext(any, topic, next, sink);
+        }
+    }
+
+    private static final void matchNext(Node node, String topic, int next, Consumer<TopicSubscription> sink) {
+        if(next > topic.length()) {
+            collect(node.subscriptions, sink);
+            Node rest = node.children.get(ANY_SEGMENTS);
+            if(rest != null) {
+                collect(rest.subscriptions, sink);
+            }
+            return;
+        }
+        match(node, topic, next, sink);
+    }
+
+    private static final void collect(List<TopicSubscription> subscriptions, Consumer<TopicSubscription> sink) {
+        for(TopicSubscription subscription : subscriptions) {
+            sink.accept(subscription);
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new ConcurrentHashMap<>();
+        private final List<TopicSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class TopicSubscription implements AutoCloseable {
+
+    private final TopicRegistry registry;
+    private final String pattern;
+    private final TopicListener listener;
+    private final AtomicBoolean active = new AtomicBoolean(true);
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    TopicSubscription(TopicRegistry registry, String pattern, TopicListener listener) {
+        this.registry = registry;
+        this.pattern = pattern;
+        this.listener = listener;
+    }
+
+    public final String getPattern() {
+        return pattern;
+    }
+
+    public final boolean isActive() {
+        return active.get();
+    }
+
+    public final long getReceivedCount() {
+        return received.sum();
+    }
+
+    public final long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    public final long getConflatedCount() {
+        return conflated.sum();
+    }
+
+    public final long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    final void deliver(String topic, LazyFunctionalityExecutionResult payload, StripedExecutor executor) {
+        if(active.get()) {
+            received.increment();
+            listener.onMessage(this, topic, payload, executor);
+        }
+    }
+
+    final void delivered() {
+        delivered.increment();
+    }
+
+    final void conflated() {
+        conflated.increment();
+    }
+
+    final void dropped() {
+        dropped.increment();
+    }
+
+    public final void unsubscribe() {
+        if(active.compareAndSet(true, false)) {
+            registry.remove(this);
+        }
+    }
+
+    @Override
+    public final void close() {
+        unsubscribe();
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import java.nio.ByteBuffer;
+
+final class Utf8Frames {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private Utf8Frames() {
+    }
+
+    static final int encodedLength(CharSequence text) {
+        int length = text.length();
+        int bytes = length;
+        for(int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if(c < 0x80) {
+                continue;
+            }
+            if(c < 0x800) {
+                bytes++;
+            } else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 2;
+                i++;
+            } else if(!Character.isSurrogate(c)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+
+    static final ByteBuffer encode(CharSequence text, ByteBuffer target) {
+        int length = text.length();
+        for(int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if(c < 0x80) {
+                target.put((byte) c);
+            } else if(c < 0x800) {
+                target.put((byte) (0xC0 | (c >> 6)));
+                target.put((byte) (0x80 | (c & 0x3F)));
+            } else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                target.put((byte) (0xF0 | (codePoint >> 18)));
+                target.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                target.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                target.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if(Character.isSurrogate(c)) {
+                target.put((byte) '?');
+            } else {
+                target.put((byte) (0xE0 | (c >> 12)));
+                target.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                target.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        target.flip();
+        return target;
+    }
+
+    static final int framedLength(ByteBuffer utf8) {
+        int bytes = 4;
+        for(int i = utf8.position(); i < utf8.limit(); i++) {
+            int b = utf8.get(i) & 0xFF;
+            if(b < 0x20) {
+                bytes += b == '\n' || b == '\r' || b == '\t' || b == '\b' || b == '\f' ? 2 : 6;
+            } else if(b == '"' || b == '\\') {
+                bytes += 2;
+            } else if(isLineSeparator(utf8, i)) {
+                bytes += 6;
+                i += 2;
+            } else {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
+
+    static final ByteBuffer frame(ByteBuffer utf8, ByteBuffer target) {
+        target.put((byte) '[').put((byte) '"');
+        for(int i = utf8.position(); i < utf8.limit(); i++) {
+            byte b = utf8.get(i);
+            if((b & 0xFF) >= 0x20 && b != '"' && b != '\\' && !isLineSeparator(utf8, i)) {
+                target.put(b);
+                continue;
+            }
+            target.put((byte) '\\');
+            switch(b) {
+                case '"':
+                case '\\':
+                    target.put(b);
+                    break;
+                case '\n':
+                    target.put((byte) 'n');
+                    break;
+                case '\r':
+                    target.put((byte) 'r');
+                    break;
+                case '\t':
+                    target.put((byte) 't');
+                    break;
+                case '\b':
+                    target.put((byte) 'b');
+                    break;
+                case '\f':
+                    target.put((byte) 'f');
+                    break;
+                default:
+                    int c = (b & 0xFF) < 0x20 ? b : 0x2028 + ((utf8.get(i + 2) & 0xFF) - 0xA8);
+                    target.put((byte) 'u').put(HEX[(c >> 12) & 0xF]).put(HEX[(c >> 8) & 0xF]).put(HEX[(c >> 4) & 0xF]).put(HEX[c & 0xF]);
+                    i += (b & 0xFF) < 0x20 ? 0 : 2;
+                    break;
+            }
+        }
+        target.put((byte) '"').put((byte) ']');
+        target.flip();
+        return target;
+    }
+
+    private static final boolean isLineSeparator(ByteBuffer utf8, int i) {
+        return (utf8.get(i) & 0xFF) == 0xE2 && i + 2 < utf8.limit() && (utf8.get(i + 1) & 0xFF) == 0x80 && ((utf8.get(i + 2) & 0xFF) == 0xA8 || (utf8.get(i + 2) & 0xFF) == 0xA9);
+    }
+}
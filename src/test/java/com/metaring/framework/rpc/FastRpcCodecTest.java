@@ -0,0 +1,101 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.framework.rpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class FastRpcCodecTest {
+
+    private final RpcCodec codec = RpcCodecs.fast();
+
+    @Test
+    public void decodesRequestFields() {
+        RpcRequest rpcRequest = codec.decodeRequest(" {\"id\":42, \"name\":\"com.metaring.test.echo\",\"param\":{\"a\":[1,2]},\"data\":null} ");
+        assertEquals(Long.valueOf(42L), rpcRequest.getId());
+        assertEquals("com.metaring.test.echo", rpcRequest.getName());
+        assertEquals("{\"a\":[1,2]}", rpcRequest.getParam().toJson());
+        assertNull(rpcRequest.getData());
+    }
+
+    @Test
+    public void skipsUnknownFields() {
+        RpcRequest rpcRequest = codec.decodeRequest("{\"extra\":{\"nested\":[\"}\",{}]},\"other\":\"x\",\"id\":-7,\"flag\":true}");
+        assertEquals(Long.valueOf(-7L), rpcRequest.getId());
+        assertNull(rpcRequest.getName());
+    }
+
+    @Test
+    public void decodesEscapedStrings() {
+        RpcRequest rpcRequest = codec.decodeRequest("{\"name\":\"a\\\"b\\\\c\\/d\\n\\u00e9\"}");
+        assertEquals("a\"b\\c/d\n\u00e9", rpcRequest.getName());
+    }
+
+    @Test
+    public void decodesNullAndBlankAsNull() {
+        assertNull(codec.decodeRequest(null));
+        assertNull(codec.decodeRequest("  "));
+        assertNull(codec.decodeRequest(" null "));
+        assertNull(codec.decodeResponse("null"));
+    }
+
+    @Test
+    public void encodesRequestsThatDecodeBack() {
+        String json = codec.encodeRequest(RpcRequest.create(5L, null, "quote\"name", null));
+        assertEquals("{\"id\":5,\"name\":\"quote\\\"name\"}", json);
+        RpcRequest rpcRequest = codec.decodeRequest(json);
+        assertEquals(Long.valueOf(5L), rpcRequest.getId());
+        assertEquals("quote\"name", rpcRequest.getName());
+    }
+
+    @Test
+    public void rejectsTrailingContent() {
+        assertRejected("{\"id\":1}x", null);
+        assertRejected("{\"id\":1}{}", null);
+        assertRejected("null x", null);
+    }
+
+    @Test
+    public void rejectsInvalidNullLiterals() {
+        assertRejected("{\"id\":nullx}", "id");
+        assertRejected("{\"name\":nulls}", "name");
+        assertRejected("{\"param\":null1}", "param");
+    }
+
+    @Test
+    public void reportsMalformedInput() {
+        assertRejected("{\"id\":\"1\"}", "id");
+        assertRejected("{\"id\":1 \"name\":\"a\"}", null);
+        assertRejected("{\"name\":\"a\\q\"}", "name");
+        assertRejected("{\"name\":\"unterminated", "name");
+        assertRejected("{\"id\":1", null);
+        assertRejected("[]", null);
+    }
+
+    private final void assertRejected(String json, String field) {
+        try {
+            codec.decodeRequest(json);
+            fail("expected " + json + " to be rejected");
+        }
+        catch(RpcCodecException e) {
+            assertEquals(json, field, e.getField());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class BootstrapCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @After
+    public void reset() {
+        BootstrapCache.clear();
+        BootstrapCache.ttl(5, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void sharesOneLoadBetweenCallers() throws Exception {
+        CompletableFuture<String> first = BootstrapCache.get("shared", this::load);
+        CompletableFuture<String> second = BootstrapCache.get("shared", this::load);
+        assertSame(first, second);
+        assertEquals("1", first.get(5, TimeUnit.SECONDS));
+        assertSame(first, BootstrapCache.get("shared", this::load));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void doesNotCacheFailures() throws Exception {
+        CompletableFuture<String> failed = BootstrapCache.get("flaky", () -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("unreachable");
+        });
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            throw new AssertionError("expected the load to fail");
+        }
+        catch(ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals("2", BootstrapCache.get("flaky", this::load).get(5, TimeUnit.SECONDS));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void reloadsOnceTheTtlExpires() throws Exception {
+        BootstrapCache.ttl(1, TimeUnit.MILLISECONDS);
+        assertEquals("1", BootstrapCache.get("expiring", this::load).get(5, TimeUnit.SECONDS));
+        Thread.sleep(10);
+        assertEquals("2", BootstrapCache.get("expiring", this::load).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void reloadsAfterInvalidation() throws Exception {
+        assertEquals("1", BootstrapCache.get("invalidated", this::load).get(5, TimeUnit.SECONDS));
+        BootstrapCache.invalidate("invalidated");
+        assertEquals("2", BootstrapCache.get("invalidated", this::load).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void joinRethrowsTheLoaderFailure() {
+        BootstrapCache.join(BootstrapCache.get("failing", () -> {
+            throw new IllegalStateException("unreachable");
+        }));
+    }
+
+    private final String load() {
+        return Integer.toString(loads.incrementAndGet());
+    }
+}
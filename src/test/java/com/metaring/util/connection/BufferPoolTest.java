@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Test
+    public void recyclesReleasedBuffers() {
+        BufferPool pool = BufferPool.create(256, 4);
+        ByteBuffer first;
+        try (BufferPool.Lease lease = pool.acquire(100)) {
+            first = lease.buffer;
+            assertTrue(first.hasArray());
+            assertEquals(1, pool.getLeasedCount());
+        }
+        assertEquals(0, pool.getLeasedCount());
+        assertEquals(1, pool.getPooledCount());
+        try (BufferPool.Lease lease = pool.acquire(200)) {
+            assertSame(first, lease.buffer);
+            assertEquals(0, lease.buffer.position());
+        }
+        assertEquals(1, pool.getAllocatedCount());
+    }
+
+    @Test
+    public void doesNotPoolOversizedBuffers() {
+        BufferPool pool = BufferPool.create(64, 4);
+        try (BufferPool.Lease lease = pool.acquire(65)) {
+            assertTrue(lease.buffer.capacity() >= 65);
+        }
+        assertEquals(1, pool.getOversizedCount());
+        assertEquals(0, pool.getPooledCount());
+    }
+
+    @Test
+    public void keepsAtMostMaxPooledBuffers() {
+        BufferPool pool = BufferPool.create(64, 1);
+        BufferPool.Lease first = pool.acquire(10);
+        BufferPool.Lease second = pool.acquire(10);
+        first.release();
+        second.release();
+        second.release();
+        assertEquals(1, pool.getPooledCount());
+        assertEquals(0, pool.getLeasedCount());
+    }
+}
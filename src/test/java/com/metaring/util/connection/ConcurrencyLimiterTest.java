@@ -0,0 +1,120 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void queuesBeyondTheLimitAndGrantsInOrder() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.fixed(1);
+        assertTrue(limiter.acquire().isDone());
+        CompletableFuture<Void> first = limiter.acquire();
+        CompletableFuture<Void> second = limiter.acquire();
+        assertFalse(first.isDone());
+        assertEquals(2, limiter.getQueued());
+        limiter.release();
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        limiter.release();
+        assertTrue(second.isDone());
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void rejectsWhenTheQueueIsFull() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.fixed(1, 1);
+        limiter.acquire();
+        limiter.acquire();
+        CompletableFuture<Void> rejected = limiter.acquire();
+        assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.join();
+        }
+        catch(RuntimeException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void withdrawsExpiredWaitersWithoutLeakingPermits() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.fixed(1);
+        limiter.acquire();
+        CompletableFuture<Void> expired = limiter.acquire();
+        CompletableFuture<Void> cancelled = limiter.acquire();
+        CompletableFuture<Void> waiting = limiter.acquire();
+        expired.completeExceptionally(new TimeoutException());
+        cancelled.cancel(false);
+        assertEquals(1, limiter.getQueued());
+        limiter.release();
+        assertTrue(waiting.isDone());
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    public void backsOffOnDroppedCallsOnly() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.adaptive(10, 1, 20, 1, TimeUnit.SECONDS);
+        limiter.acquire();
+        limiter.release(-1L, true);
+        assertEquals(10, limiter.getLimit());
+        limiter.acquire();
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(5), true);
+        assertEquals(9, limiter.getLimit());
+        limiter.acquire();
+        limiter.release(TimeUnit.SECONDS.toNanos(2), false);
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    public void growsWhileSaturated() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.adaptive(2, 1, 3, 1, TimeUnit.SECONDS);
+        for(int i = 0; i < 8; i++) {
+            limiter.acquire();
+            limiter.acquire();
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+        }
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    public void grantsEveryWaiterTheRaisedLimitAllows() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.adaptive(2, 1, 10, 1, TimeUnit.SECONDS);
+        limiter.acquire();
+        limiter.acquire();
+        for(int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        for(int i = 0; i < 3; i++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+        }
+        assertEquals(3, limiter.getLimit());
+        assertEquals(3, limiter.getInFlight());
+        assertEquals(1, limiter.getQueued());
+    }
+}
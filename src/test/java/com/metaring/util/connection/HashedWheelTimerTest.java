@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class HashedWheelTimerTest {
+
+    private final HashedWheelTimer timer = new HashedWheelTimer("test-timer", 1, TimeUnit.MILLISECONDS, 8);
+
+    @After
+    public void restoreErrorHandler() {
+        CallbackExecutors.onUncaughtError(null);
+    }
+
+    @Test
+    public void expiresNoEarlierThanTheDelay() throws Exception {
+        CountDownLatch expired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        HashedWheelTimer.Timeout timeout = timer.schedule(expired::countDown, 30, TimeUnit.MILLISECONDS);
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void expiresDelaysLongerThanOneRevolution() throws Exception {
+        CountDownLatch expired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.schedule(expired::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void skipsCancelledTimeouts() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Timeout cancelled = timer.schedule(runs::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.cancel());
+        CountDownLatch later = new CountDownLatch(1);
+        timer.schedule(later::countDown, 60, TimeUnit.MILLISECONDS);
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertFalse(cancelled.isExpired());
+    }
+
+    @Test
+    public void reportsTaskFailuresAndKeepsTicking() throws Exception {
+        AtomicReference<Throwable> reported = new AtomicReference<>();
+        CallbackExecutors.onUncaughtError(reported::set);
+        IllegalStateException failure = new IllegalStateException("boom");
+        timer.schedule(() -> {
+            throw failure;
+        }, 1, TimeUnit.MILLISECONDS);
+        CountDownLatch next = new CountDownLatch(1);
+        timer.schedule(next::countDown, 20, TimeUnit.MILLISECONDS);
+        assertTrue(next.await(5, TimeUnit.SECONDS));
+        assertSame(failure, reported.get());
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class JsonFieldsTest {
+
+    @Test
+    public void readsTopLevelFields() {
+        JsonFields fields = JsonFields.scan(" { \"id\" : 42 , \"topic\":\"a.b\", \"empty\":null } ");
+        assertEquals(42L, fields.getLong("id", 0L));
+        assertEquals("a.b", fields.getString("topic"));
+        assertTrue(fields.has("empty"));
+        assertTrue(fields.isNull("empty"));
+        assertNull(fields.raw("empty"));
+        assertFalse(fields.has("missing"));
+        assertTrue(fields.isNull("missing"));
+    }
+
+    @Test
+    public void decodesEscapes() {
+        JsonFields fields = JsonFields.scan("{\"s\":\"q\\\" b\\\\ s\\/ t\\t n\\n u\\u00e9 ls\\u2028\"}");
+        assertEquals("q\" b\\ s/ t\t n\n u\u00e9 ls\u2028", fields.getString("s"));
+    }
+
+    @Test
+    public void keepsRawLineSeparatorsInsideStrings() {
+        JsonFields fields = JsonFields.scan("{\"s\":\"a\u2028b\",\"id\":1}");
+        assertEquals("a\u2028b", fields.getString("s"));
+        assertEquals(1L, fields.getLong("id", 0L));
+    }
+
+    @Test
+    public void skipsNestedObjectsAndArrays() {
+        String json = "{\"result\":{\"a\":[1,{\"b\":\"}]\"},[]],\"c\":{}},\"list\":[\"x\",\"]\"],\"id\":7}";
+        JsonFields fields = JsonFields.scan(json);
+        assertEquals("{\"a\":[1,{\"b\":\"}]\"},[]],\"c\":{}}", fields.raw("result"));
+        assertEquals("[\"x\",\"]\"]", fields.raw("list"));
+        assertEquals(7L, fields.getLong("id", 0L));
+        JsonFields result = fields.object("result");
+        assertEquals("[1,{\"b\":\"}]\"},[]]", result.raw("a"));
+        assertEquals("{}", result.raw("c"));
+    }
+
+    @Test
+    public void rejectsMalformedObjects() {
+        for(String json : new String[] {
+                "{\"a\":1 \"b\":2}",
+                "{\"a\":1,}",
+                "{\"a\" 1}",
+                "{a:1}",
+                "{\"a\":}",
+                "{\"a\":1",
+                "{\"a\":\"open}",
+                "{\"a\":[1,2}",
+                "{\"a\":\"\\x\"}",
+                "{\"a\":\"\\u12g4\"}" }) {
+            try {
+                JsonFields.scan(json).getString("a");
+                fail("expected " + json + " to be rejected");
+            }
+            catch(IllegalArgumentException e) {
+            }
+        }
+    }
+
+    @Test
+    public void readsIntegralNumbers() {
+        JsonFields fields = JsonFields.scan("{\"a\":-12,\"b\":\"34\",\"c\":1.0,\"d\":2e3,\"e\":9223372036854775807,\"f\":-9223372036854775808}");
+        assertEquals(-12L, fields.getLong("a", 0L));
+        assertEquals(34L, fields.getLong("b", 0L));
+        assertEquals(1L, fields.getLong("c", 0L));
+        assertEquals(2000L, fields.getLong("d", 0L));
+        assertEquals(Long.MAX_VALUE, fields.getLong("e", 0L));
+        assertEquals(Long.MIN_VALUE, fields.getLong("f", 0L));
+        assertEquals(5L, fields.getLong("missing", 5L));
+    }
+
+    @Test
+    public void rejectsNonIntegralNumbers() {
+        JsonFields fields = JsonFields.scan("{\"a\":1.5,\"b\":1e-1,\"c\":9223372036854775808,\"d\":\"x\",\"e\":-}");
+        for(String name : new String[] { "a", "b", "c", "d", "e" }) {
+            try {
+                fields.getLong(name, 0L);
+                fail("expected " + name + " to be rejected");
+            }
+            catch(NumberFormatException e) {
+            }
+        }
+    }
+
+    @Test
+    public void canonicalizesFieldOrderAndWhitespace() {
+        assertEquals("{\"a\":[1,{\"c\":null,\"d\":\"\u00e9\"}],\"b\":true}", JsonFields.canonicalize(" { \"b\" : true , \"a\" : [ 1 , { \"d\" : \"\\u00e9\" , \"c\" : null } ] } "));
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.metaring.framework.Tools;
+
+public class LazyFunctionalityExecutionResultTest {
+
+    private static final String RESPONSE = "{\"id\":3,\"result\":{\"response\":\"SUCCESS\",\"result\":{\"a\":[1,2]}}}";
+
+    private static LazyFunctionalityExecutionResult result(String json) {
+        JsonFields fields = JsonFields.scan(json);
+        return LazyFunctionalityExecutionResult.ofResult(json, fields.start("result"), fields.end("result"));
+    }
+
+    @Test
+    public void exposesTheRawResultWithoutParsingIt() {
+        LazyFunctionalityExecutionResult result = result(RESPONSE);
+        assertEquals("SUCCESS", result.getResponse());
+        assertTrue(result.isSuccessful());
+        assertTrue(result.hasResult());
+        assertEquals("{\"a\":[1,2]}", result.rawJson().toString());
+        assertEquals("{\"response\":\"SUCCESS\",\"result\":{\"a\":[1,2]}}", result.toString());
+    }
+
+    @Test
+    public void parsesTheResultOnceOnFirstAccess() {
+        LazyFunctionalityExecutionResult result = result(RESPONSE);
+        assertEquals("{\"a\":[1,2]}", result.getResult().toJson());
+        assertSame(result.getResult(), result.getResult());
+    }
+
+    @Test
+    public void reportsFailuresWithoutAResult() {
+        LazyFunctionalityExecutionResult result = result("{\"id\":4,\"result\":{\"response\":\"ERROR\"}}");
+        assertEquals("ERROR", result.getResponse());
+        assertFalse(result.isSuccessful());
+        assertFalse(result.hasResult());
+        assertNull(result.rawJson());
+        assertNull(result.getResult());
+    }
+
+    @Test
+    public void slicesPushedPayloadsOutOfTheFrame() {
+        String json = "{\"topic\":\"news\",\"payload\":{\"title\":\"x\"}}";
+        JsonFields fields = JsonFields.scan(json);
+        LazyFunctionalityExecutionResult payload = LazyFunctionalityExecutionResult.ofPayload(json, fields.start("payload"), fields.end("payload"));
+        assertTrue(payload.isSuccessful());
+        assertEquals("{\"title\":\"x\"}", payload.rawJson().toString());
+        assertEquals(2L * json.length(), payload.weight());
+    }
+
+    @Test
+    public void copiesDoNotShareTheParsedResult() {
+        LazyFunctionalityExecutionResult result = result(RESPONSE);
+        LazyFunctionalityExecutionResult copy = result.copy();
+        assertNotSame(result.getResult(), copy.getResult());
+        assertEquals(result.rawJson().toString(), copy.rawJson().toString());
+    }
+
+    @Test
+    public void copiesValuesThroughTheirJson() {
+        LazyFunctionalityExecutionResult value = LazyFunctionalityExecutionResult.ofValue(Tools.FACTORY_DATA_REPRESENTATION.fromJson("{\"b\":2}"));
+        assertEquals("{\"b\":2}", value.rawJson().toString());
+        LazyFunctionalityExecutionResult copy = value.copy();
+        assertNotSame(value.getResult(), copy.getResult());
+        assertEquals("{\"b\":2}", copy.rawJson().toString());
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.metaring.framework.functionality.FunctionalityInfo;
+
+public class MetaRingCommunicationProtocolPoolTest {
+
+    private static final FunctionalityInfo ECHO = FunctionalityInfo.create("test.echo", false, false, false, null, null);
+
+    private static MetaRingCommunicationProtocolPool pool(int size) {
+        MetaRingCommunicationProtocolPool pool = MetaRingCommunicationProtocolPool.create(size, () -> MetaRingCommunicationProtocol.create("ws://10.255.255.1:1/", "ws", null, null, null, Transport.WEBSOCKET)).connect();
+        for(MetaRingCommunicationProtocol session : pool.getSessions()) {
+            session.getSockJSClient().getSession().onOpen(null);
+            assertTrue(session.isConnected());
+        }
+        return pool;
+    }
+
+    private static MetaRingCommunicationProtocol other(MetaRingCommunicationProtocolPool pool, MetaRingCommunicationProtocol session) {
+        return pool.getSessions().get(0) == session ? pool.getSessions().get(1) : pool.getSessions().get(0);
+    }
+
+    @Test
+    public void rehomesSubscriptionsWhenAMemberDrops() throws Exception {
+        AtomicInteger disconnects = new AtomicInteger();
+        MetaRingCommunicationProtocolPool pool = pool(2).onDisconnect(e -> disconnects.incrementAndGet());
+        CountDownLatch received = new CountDownLatch(1);
+        MetaRingCommunicationProtocolPool.PooledSubscription subscription = pool.subscribe("news.*", result -> received.countDown());
+        MetaRingCommunicationProtocol lost = subscription.getSession();
+        MetaRingCommunicationProtocol survivor = other(pool, lost);
+        lost.getSockJSClient().getSession().onClose(1006, "gone", true);
+        assertFalse(lost.isConnected());
+        assertEquals(1, disconnects.get());
+        assertSame(survivor, subscription.getSession());
+        survivor.getSockJSClient().getSession().onMessage("{\"topic\":\"news.sport\",\"payload\":{\"score\":1}}");
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void stopsDeliveringFromTheLostMember() throws Exception {
+        MetaRingCommunicationProtocolPool pool = pool(2);
+        AtomicInteger received = new AtomicInteger();
+        MetaRingCommunicationProtocolPool.PooledSubscription subscription = pool.subscribe("news", result -> received.incrementAndGet());
+        MetaRingCommunicationProtocol lost = subscription.getSession();
+        lost.getSockJSClient().getSession().onClose(1006, "gone", true);
+        assertNotSame(lost, subscription.getSession());
+        lost.getSockJSClient().getSession().onMessage("{\"topic\":\"news\",\"payload\":1}");
+        subscription.unsubscribe();
+        Thread.sleep(50);
+        assertEquals(0, received.get());
+    }
+
+    @Test
+    public void routesCallsToTheConnectedMember() {
+        MetaRingCommunicationProtocolPool pool = pool(2);
+        MetaRingCommunicationProtocol lost = pool.getSessions().get(0);
+        MetaRingCommunicationProtocol survivor = pool.getSessions().get(1);
+        lost.getSockJSClient().getSession().onClose(1006, "gone", true);
+        for(int i = 0; i < 3; i++) {
+            pool.callLazy(ECHO);
+        }
+        assertEquals(3, survivor.getInFlightCount());
+        assertEquals(0, lost.getInFlightCount());
+        assertEquals(3, survivor.getSockJSClient().clearOutbox().size());
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.metaring.framework.functionality.FunctionalityInfo;
+
+public class MetaRingCommunicationProtocolTest {
+
+    private static final FunctionalityInfo ECHO = FunctionalityInfo.create("test.echo", false, false, false, null, null);
+    private static final Executor REJECTING = task -> {
+        throw new RejectedExecutionException("saturated");
+    };
+
+    private static MetaRingCommunicationProtocol protocol() {
+        return MetaRingCommunicationProtocol.create("ws://10.255.255.1:1/", "ws", null, null, null, Transport.WEBSOCKET);
+    }
+
+    private static SockJSClient.SockJS awaitNewSession(MetaRingCommunicationProtocol protocol, SockJSClient.SockJS previous) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        SockJSClient.SockJS session;
+        while((session = protocol.getSockJSClient().getSession()) == previous && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        return session;
+    }
+
+    @Test
+    public void reconnectsAfterAHandshakeRejectedWithoutOpening() throws Exception {
+        CountDownLatch disconnected = new CountDownLatch(1);
+        MetaRingCommunicationProtocol protocol = protocol()
+                .reconnect(ReconnectPolicy.exponential(1, 1, TimeUnit.MILLISECONDS).maxAttempts(1))
+                .onDisconnect(e -> disconnected.countDown());
+        protocol.connect();
+        SockJSClient.SockJS rejected = protocol.getSockJSClient().getSession();
+        rejected.onClose(1002, "Invalid status code received: 403", false);
+        assertTrue(disconnected.await(5, TimeUnit.SECONDS));
+        assertNotSame(rejected, awaitNewSession(protocol, rejected));
+    }
+
+    @Test
+    public void reportsAFailedAttemptOnce() {
+        AtomicInteger disconnects = new AtomicInteger();
+        MetaRingCommunicationProtocol protocol = protocol().onDisconnect(e -> disconnects.incrementAndGet());
+        protocol.connect();
+        SockJSClient.SockJS session = protocol.getSockJSClient().getSession();
+        session.onError(new IOException("Connection refused"));
+        session.onClose(-1, "Connection refused", false);
+        assertEquals(1, disconnects.get());
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        catch(ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("expected the future to fail");
+    }
+
+    @Test
+    public void failsConnectingWhenTheHandshakeIsRejected() throws Exception {
+        MetaRingCommunicationProtocol protocol = protocol();
+        CompletableFuture<MetaRingCommunicationProtocol> connecting = protocol.connectAsync();
+        protocol.getSockJSClient().getSession().onClose(1002, "Invalid status code received: 404", false);
+        assertTrue(failure(connecting) instanceof IOException);
+    }
+
+    @Test
+    public void failsConnectingOnceTheReconnectPolicyIsExhausted() throws Exception {
+        MetaRingCommunicationProtocol protocol = protocol().reconnect(ReconnectPolicy.exponential(1, 1, TimeUnit.MILLISECONDS).maxAttempts(1));
+        CompletableFuture<MetaRingCommunicationProtocol> connecting = protocol.connectAsync();
+        SockJSClient.SockJS first = protocol.getSockJSClient().getSession();
+        first.onClose(1002, "Invalid status code received: 503", false);
+        SockJSClient.SockJS second = awaitNewSession(protocol, first);
+        assertNotSame(first, second);
+        second.onClose(1002, "Invalid status code received: 503", false);
+        assertTrue(failure(connecting) instanceof IOException);
+    }
+
+    @Test
+    public void boundsConnectingWithTheTimeout() throws Exception {
+        MetaRingCommunicationProtocol protocol = protocol();
+        CompletableFuture<MetaRingCommunicationProtocol> connecting = protocol.connectAsync(20, TimeUnit.MILLISECONDS);
+        assertTrue(failure(connecting) instanceof TimeoutException);
+        assertFalse(protocol.isConnected());
+    }
+
+    @Test
+    public void completesConnectingOnOpen() throws Exception {
+        MetaRingCommunicationProtocol protocol = protocol();
+        CompletableFuture<MetaRingCommunicationProtocol> connecting = protocol.connectAsync(5, TimeUnit.SECONDS);
+        protocol.getSockJSClient().getSession().onOpen(null);
+        assertSame(protocol, connecting.get(5, TimeUnit.SECONDS));
+        assertTrue(protocol.isConnected());
+    }
+
+    @Test
+    public void expiresCallsInlineWhenTheCallbackExecutorRejects() throws Exception {
+        MetaRingCommunicationProtocol protocol = protocol().callbackExecutor(REJECTING);
+        CompletableFuture<LazyFunctionalityExecutionResult> call = protocol.callLazy(ECHO, null, 20, TimeUnit.MILLISECONDS);
+        assertTrue(failure(call) instanceof RpcTimeoutException);
+        assertEquals(0, protocol.getInFlightCount());
+    }
+
+    @Test
+    public void completesCallsInlineWhenTheCallbackExecutorRejects() throws Exception {
+        MetaRingCommunicationProtocol protocol = protocol().callbackExecutor(REJECTING);
+        CompletableFuture<LazyFunctionalityExecutionResult> call = protocol.callLazy(ECHO, null, 5, TimeUnit.SECONDS);
+        String request = protocol.getSockJSClient().clearOutbox().get(0);
+        long id = JsonFields.scan(request).getLong("id", 0L);
+        protocol.getSockJSClient().getSession().onMessage("{\"id\":" + id + ",\"result\":{\"status\":\"OK\"}}");
+        assertTrue(call.isDone());
+        assertFalse(call.isCompletedExceptionally());
+    }
+
+    private static void respond(MetaRingCommunicationProtocol protocol, String request, String result) {
+        long id = JsonFields.scan(request).getLong("id", 0L);
+        protocol.getSockJSClient().getSession().onMessage("{\"id\":" + id + ",\"result\":" + result + "}");
+    }
+
+    @Test
+    public void coalescesIdenticalInFlightCalls() throws Exception {
+        MetaRingCommunicationProtocol protocol = protocol().deduplicate(ECHO);
+        CompletableFuture<LazyFunctionalityExecutionResult> first = protocol.callLazy(ECHO, null, 5, TimeUnit.SECONDS);
+        CompletableFuture<LazyFunctionalityExecutionResult> second = protocol.callLazy(ECHO, null, 5, TimeUnit.SECONDS);
+        assertEquals(1, protocol.getSharedCallCount());
+        List<String> requests = protocol.getSockJSClient().clearOutbox();
+        assertEquals(1, requests.size());
+        respond(protocol, requests.get(0), "{\"response\":\"SUCCESS\",\"result\":1}");
+        assertNotSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancellingAJoinerLeavesTheSharedCallRunning() throws Exception {
+        MetaRingCommunicationProtocol protocol = protocol().deduplicate(ECHO);
+        CompletableFuture<LazyFunctionalityExecutionResult> first = protocol.callLazy(ECHO, null, 5, TimeUnit.SECONDS);
+        CompletableFuture<LazyFunctionalityExecutionResult> joiner = protocol.callLazy(ECHO, null, 5, TimeUnit.SECONDS);
+        joiner.cancel(false);
+        assertFalse(first.isDone());
+        respond(protocol, protocol.getSockJSClient().clearOutbox().get(0), "{\"response\":\"SUCCESS\",\"result\":1}");
+        assertTrue(first.get(5, TimeUnit.SECONDS).isSuccessful());
+    }
+
+    @Test
+    public void appliesEachJoinersOwnTimeout() throws Exception {
+        MetaRingCommunicationProtocol protocol = protocol().deduplicate(ECHO);
+        CompletableFuture<LazyFunctionalityExecutionResult> first = protocol.callLazy(ECHO, null, 5, TimeUnit.SECONDS);
+        CompletableFuture<LazyFunctionalityExecutionResult> impatient = protocol.callLazy(ECHO, null, 20, TimeUnit.MILLISECONDS);
+        assertTrue(failure(impatient) instanceof RpcTimeoutException);
+        assertFalse(first.isDone());
+        assertEquals(1, protocol.getSharedCallCount());
+        respond(protocol, protocol.getSockJSClient().clearOutbox().get(0), "{\"response\":\"SUCCESS\",\"result\":1}");
+        assertEquals("1", first.get(5, TimeUnit.SECONDS).rawJson().toString());
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Inflater;
+
+import org.java_websocket.framing.TextFrame;
+import org.junit.Test;
+
+public class MeteredDeflateExtensionTest {
+
+    private static final String MESSAGE = repeat("{\"name\":\"com.metaring.test.echo\",\"param\":\"payload\"}", 64);
+
+    private final CompressionStats stats = new CompressionStats();
+    private final MeteredDeflateExtension extension = CompressionOptions.deflate().threshold(16).newExtension(stats);
+
+    @Test
+    public void compressesPooledBuffers() throws Exception {
+        BufferPool pool = BufferPool.create(64 * 1024, 2);
+        try (BufferPool.Lease lease = pool.acquire(Utf8Frames.encodedLength(MESSAGE))) {
+            assertEquals(MESSAGE, roundTrip(Utf8Frames.encode(MESSAGE, lease.buffer)));
+        }
+        assertEquals(1, stats.getDeflatedMessages());
+        assertTrue(stats.getBytesSaved() > 0);
+    }
+
+    @Test
+    public void compressesOnlyTheRemainingBytesOfOversizedHeapBuffers() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(MESSAGE.length() * 2);
+        buffer.put(StandardCharsets.UTF_8.encode(MESSAGE)).flip();
+        assertEquals(MESSAGE, roundTrip(buffer));
+    }
+
+    @Test
+    public void compressesOnlyTheRemainingBytesOfSlicedBuffers() throws Exception {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode("garbage" + MESSAGE + "garbage");
+        buffer.position(7).limit(7 + MESSAGE.length());
+        assertEquals(MESSAGE, roundTrip(buffer.duplicate()));
+    }
+
+    private final String roundTrip(ByteBuffer payload) throws Exception {
+        TextFrame frame = new TextFrame();
+        frame.setPayload(payload);
+        frame.setFin(true);
+        extension.encodeFrame(frame);
+        ByteBuffer compressed = frame.getPayloadData();
+        assertTrue(compressed.remaining() < MESSAGE.length());
+        return inflate(compressed);
+    }
+
+    private static final String inflate(ByteBuffer compressed) throws Exception {
+        byte[] input = new byte[compressed.remaining() + 4];
+        compressed.duplicate().get(input, 0, compressed.remaining());
+        input[input.length - 2] = (byte) 0xff;
+        input[input.length - 1] = (byte) 0xff;
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(input);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1024];
+        int read;
+        while ((read = inflater.inflate(chunk)) > 0) {
+            output.write(chunk, 0, read);
+        }
+        inflater.end();
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static final String repeat(String text, int times) {
+        StringBuilder repeated = new StringBuilder(text.length() * times);
+        for (int i = 0; i < times; i++) {
+            repeated.append(text);
+        }
+        return repeated.toString();
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PendingCallTableTest {
+
+    private final PendingCallTable<String> table = new PendingCallTable<>();
+
+    @Test
+    public void putsGetsAndRemoves() {
+        table.put(1L, "one");
+        table.put(2L, "two");
+        assertEquals("one", table.get(1L));
+        assertEquals("two", table.get(2L));
+        assertEquals(2, table.size());
+        assertEquals("one", table.remove(1L));
+        assertNull(table.remove(1L));
+        assertNull(table.get(1L));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void replacesWithoutGrowing() {
+        table.put(7L, "first");
+        table.put(7L, "second");
+        assertEquals("second", table.get(7L));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void ignoresNonPositiveIds() {
+        assertNull(table.get(0L));
+        assertNull(table.remove(-1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveIds() {
+        table.put(0L, "zero");
+    }
+
+    @Test
+    public void survivesResizeAndRemovalChurn() {
+        int calls = 10_000;
+        for(long id = 1; id <= calls; id++) {
+            table.put(id, Long.toString(id));
+        }
+        for(long id = 1; id <= calls; id += 2) {
+            assertEquals(Long.toString(id), table.remove(id));
+        }
+        assertEquals(calls / 2, table.size());
+        for(long id = 2; id <= calls; id += 2) {
+            assertEquals(Long.toString(id), table.get(id));
+        }
+        for(long id = 1; id <= calls; id += 2) {
+            assertNull(table.get(id));
+        }
+    }
+
+    @Test
+    public void listsEveryValue() {
+        Set<String> expected = new HashSet<>();
+        for(long id = 1; id <= 100; id++) {
+            table.put(id, "call" + id);
+            expected.add("call" + id);
+        }
+        assertEquals(expected, new HashSet<>(table.values()));
+        for(long id = 1; id <= 100; id++) {
+            table.remove(id);
+        }
+        assertEquals(0, table.size());
+        assertTrue(table.values().isEmpty());
+    }
+
+    @Test
+    public void keepsEveryCallAcrossShrinking() {
+        int calls = 10_000;
+        for(long id = 1; id <= calls; id++) {
+            table.put(id, Long.toString(id));
+        }
+        for(long id = 1; id < calls; id++) {
+            assertEquals(Long.toString(id), table.remove(id));
+        }
+        assertEquals(1, table.size());
+        assertEquals(Long.toString(calls), table.get(calls));
+        for(long id = 1; id < calls; id++) {
+            assertNull(table.get(id));
+        }
+    }
+
+    @Test
+    public void survivesConcurrentPutsAndRemoves() throws Exception {
+        int threads = 8;
+        int callsPerThread = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> mismatches = new ArrayList<>();
+            for(int t = 0; t < threads; t++) {
+                long first = 1L + (long) t * callsPerThread;
+                mismatches.add(executor.submit(() -> {
+                    start.await();
+                    int mismatched = 0;
+                    for(long id = first; id < first + callsPerThread; id++) {
+                        table.put(id, Long.toString(id));
+                        if(id - first >= 64 && !Long.toString(id - 64).equals(table.remove(id - 64))) {
+                            mismatched++;
+                        }
+                    }
+                    for(long id = Math.max(first, first + callsPerThread - 64); id < first + callsPerThread; id++) {
+                        if(!Long.toString(id).equals(table.remove(id))) {
+                            mismatched++;
+                        }
+                    }
+                    return mismatched;
+                }));
+            }
+            start.countDown();
+            for(Future<Integer> mismatched : mismatches) {
+                assertEquals(0, mismatched.get(30, TimeUnit.SECONDS).intValue());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, table.size());
+        assertTrue(table.values().isEmpty());
+    }
+}
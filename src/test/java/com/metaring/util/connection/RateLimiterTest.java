@@ -0,0 +1,76 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+    @Test
+    public void grantsTheBurstThenRejects() {
+        RateLimiter limiter = RateLimiter.of(1, 1, TimeUnit.HOURS).burst(3);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(3, limiter.getGrantedCount());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void delaysWithinTheConfiguredBound() {
+        RateLimiter limiter = RateLimiter.of(1, 1, TimeUnit.SECONDS).delayUpTo(5, TimeUnit.SECONDS);
+        assertEquals(0L, limiter.reserve(Long.MAX_VALUE));
+        long delay = limiter.reserve(Long.MAX_VALUE);
+        assertTrue(delay > TimeUnit.MILLISECONDS.toNanos(900) && delay <= TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1, limiter.getDelayedCount());
+    }
+
+    @Test
+    public void boundsTheDelayByTheCallerAndTheConfiguration() {
+        RateLimiter limiter = RateLimiter.of(1, 1, TimeUnit.SECONDS).delayUpTo(5, TimeUnit.SECONDS);
+        limiter.reserve(Long.MAX_VALUE);
+        assertEquals(-1L, limiter.reserve(TimeUnit.MILLISECONDS.toNanos(100)));
+        for(int i = 1; i <= 5; i++) {
+            assertTrue(limiter.reserve(Long.MAX_VALUE) > 0);
+        }
+        assertEquals(-1L, limiter.reserve(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void neverDelaysWithoutDelayUpTo() {
+        RateLimiter limiter = RateLimiter.perSecond(1);
+        assertEquals(0L, limiter.reserve(Long.MAX_VALUE));
+        assertEquals(-1L, limiter.reserve(Long.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroPermits() {
+        RateLimiter.of(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroPermitsPerSecond() {
+        RateLimiter.perSecond(0);
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ReconnectPolicyTest {
+
+    @Test
+    public void growsExponentiallyUpToTheMaximumDelay() {
+        ReconnectPolicy policy = ReconnectPolicy.exponential(100, 1000, TimeUnit.MILLISECONDS).jitter(0);
+        assertEquals(100, policy.delayMillis(0));
+        assertEquals(200, policy.delayMillis(1));
+        assertEquals(400, policy.delayMillis(2));
+        assertEquals(800, policy.delayMillis(3));
+        assertEquals(1000, policy.delayMillis(4));
+        assertEquals(1000, policy.delayMillis(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void appliesTheConfiguredMultiplier() {
+        ReconnectPolicy policy = ReconnectPolicy.exponential(10, 1000, TimeUnit.MILLISECONDS).multiplier(3).jitter(0);
+        assertEquals(10, policy.delayMillis(0));
+        assertEquals(30, policy.delayMillis(1));
+        assertEquals(90, policy.delayMillis(2));
+    }
+
+    @Test
+    public void jittersWithinTheConfiguredFraction() {
+        ReconnectPolicy policy = ReconnectPolicy.exponential(1, 1, TimeUnit.SECONDS).jitter(0.25);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for(int i = 0; i < 1000; i++) {
+            long delay = policy.delayMillis(5);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        assertTrue(min >= 750);
+        assertTrue(max <= 1000);
+        assertTrue(max > min);
+    }
+
+    @Test
+    public void neverWaitsLessThanOneMillisecond() {
+        ReconnectPolicy policy = ReconnectPolicy.exponential(0, 0, TimeUnit.MILLISECONDS).jitter(0);
+        assertEquals(1, policy.delayMillis(0));
+        assertEquals(1, policy.delayMillis(10));
+    }
+
+    @Test
+    public void stopsAfterTheMaximumAttempts() {
+        ReconnectPolicy policy = ReconnectPolicy.exponential(1, 1, TimeUnit.SECONDS).maxAttempts(3);
+        assertFalse(policy.isExhausted(2));
+        assertTrue(policy.isExhausted(3));
+        assertFalse(ReconnectPolicy.exponential(1, 1, TimeUnit.SECONDS).isExhausted(Integer.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShrinkingMultipliers() {
+        ReconnectPolicy.exponential(1, 1, TimeUnit.SECONDS).multiplier(0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsJitterAboveOne() {
+        ReconnectPolicy.exponential(1, 1, TimeUnit.SECONDS).jitter(1.5);
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.metaring.framework.Tools;
+import com.metaring.framework.functionality.FunctionalityInfo;
+
+public class ResponseCacheTest {
+
+    private static final FunctionalityInfo USERS = FunctionalityInfo.create("test.users", false, false, false, null, null);
+    private static final FunctionalityInfo ORDERS = FunctionalityInfo.create("test.orders", false, false, false, null, null);
+    private static final long TTL = TimeUnit.MINUTES.toNanos(1);
+
+    private final ResponseCache cache = ResponseCache.create(1L << 20);
+
+    private static CallKey key(FunctionalityInfo functionalityInfo, String param) {
+        return CallKey.of(functionalityInfo.getFunctionalityFullyQualifiedName(), param == null ? null : Tools.FACTORY_DATA_REPRESENTATION.fromJson(param));
+    }
+
+    private static LazyFunctionalityExecutionResult result(String json) {
+        return LazyFunctionalityExecutionResult.ofPayload(json, 0, json.length());
+    }
+
+    @Test
+    public void expiresEntriesAfterTheirTtl() throws Exception {
+        cache.put(key(USERS, null), result("1"), TimeUnit.MILLISECONDS.toNanos(10), cache.generation());
+        assertNotNull(cache.get(key(USERS, null)));
+        Thread.sleep(20);
+        assertNull(cache.get(key(USERS, null)));
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.getWeight());
+    }
+
+    @Test
+    public void dropsInFlightResultsOfInvalidatedFunctionalitiesOnly() {
+        long generation = cache.generation();
+        cache.invalidate(USERS);
+        cache.put(key(USERS, null), result("1"), TTL, generation);
+        cache.put(key(ORDERS, null), result("2"), TTL, generation);
+        assertNull(cache.get(key(USERS, null)));
+        assertNotNull(cache.get(key(ORDERS, null)));
+        cache.put(key(USERS, null), result("1"), TTL, cache.generation());
+        assertNotNull(cache.get(key(USERS, null)));
+    }
+
+    @Test
+    public void dropsInFlightResultsAfterInvalidatingEverything() {
+        long generation = cache.generation();
+        cache.put(key(USERS, null), result("1"), TTL, generation);
+        cache.invalidateAll();
+        cache.put(key(ORDERS, null), result("2"), TTL, generation);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void invalidatesSingleParams() {
+        cache.put(key(USERS, "{\"id\":1}"), result("1"), TTL, cache.generation());
+        cache.put(key(USERS, "{\"id\":2}"), result("2"), TTL, cache.generation());
+        cache.invalidate(USERS, Tools.FACTORY_DATA_REPRESENTATION.fromJson("{\"id\":1}"));
+        assertNull(cache.get(key(USERS, "{\"id\":1}")));
+        assertNotNull(cache.get(key(USERS, "{\"id\":2}")));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntriesByWeight() {
+        CallKey first = key(USERS, "{\"id\":1}");
+        CallKey second = key(USERS, "{\"id\":2}");
+        CallKey third = key(USERS, "{\"id\":3}");
+        String payload = "\"" + new String(new char[100]).replace('\0', 'x') + "\"";
+        ResponseCache small = ResponseCache.create(900);
+        small.put(first, result(payload), TTL, small.generation());
+        small.put(second, result(payload), TTL, small.generation());
+        assertNotNull(small.get(first));
+        small.put(third, result(payload), TTL, small.generation());
+        assertNotNull(small.get(first));
+        assertNull(small.get(second));
+        assertNotNull(small.get(third));
+        assertEquals(1L, small.getEvictionCount());
+        assertEquals(2, small.size());
+    }
+}
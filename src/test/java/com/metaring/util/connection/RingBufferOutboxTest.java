@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class RingBufferOutboxTest {
+
+    @Test
+    public void roundsCapacityUpToAPowerOfTwo() {
+        assertEquals(2, new RingBufferOutbox<String>(1).capacity());
+        assertEquals(8, new RingBufferOutbox<String>(5).capacity());
+        assertEquals(8, new RingBufferOutbox<String>(8).capacity());
+    }
+
+    @Test
+    public void pollsInOfferOrderAndRefusesWhenFull() {
+        RingBufferOutbox<String> outbox = new RingBufferOutbox<>(4);
+        for(int i = 0; i < 4; i++) {
+            assertTrue(outbox.offer("frame" + i));
+        }
+        assertFalse(outbox.offer("overflow"));
+        assertEquals(4, outbox.size());
+        for(int i = 0; i < 4; i++) {
+            assertEquals("frame" + i, outbox.poll());
+        }
+        assertNull(outbox.poll());
+        assertTrue(outbox.isEmpty());
+    }
+
+    @Test
+    public void wrapsAround() {
+        RingBufferOutbox<Integer> outbox = new RingBufferOutbox<>(2);
+        for(int i = 0; i < 10; i++) {
+            assertTrue(outbox.offer(i));
+            assertEquals(Integer.valueOf(i), outbox.poll());
+        }
+        assertTrue(outbox.isEmpty());
+    }
+
+    @Test
+    public void deliversEveryElementOnceUnderContention() throws Exception {
+        RingBufferOutbox<Integer> outbox = new RingBufferOutbox<>(64);
+        int producers = 4;
+        int perProducer = 10_000;
+        Set<Integer> received = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(producers * 2);
+        for(int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            new Thread(() -> {
+                for(int i = 0; i < perProducer; i++) {
+                    while(!outbox.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+        for(int c = 0; c < producers; c++) {
+            new Thread(() -> {
+                while(remaining.get() > 0) {
+                    Integer element = outbox.poll();
+                    if(element == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    if(!received.add(element)) {
+                        duplicates.incrementAndGet();
+                    }
+                    remaining.decrementAndGet();
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertEquals(0, duplicates.get());
+        Set<Integer> expected = new HashSet<>();
+        for(int i = 0; i < producers * perProducer; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, received);
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.metaring.framework.Tools;
+import com.metaring.framework.functionality.FunctionalityInfo;
+import com.metaring.framework.rpc.auth.AuthFunctionalitiesManager;
+import com.metaring.framework.type.DataRepresentation;
+
+public class RpcRequestWriterTest {
+
+    private static final String CALL_RESERVED = AuthFunctionalitiesManager.CALL_RESERVED.getFunctionalityFullyQualifiedName();
+    private static final String CALL_RESTRICTED = AuthFunctionalitiesManager.CALL_RESTRICTED.getFunctionalityFullyQualifiedName();
+
+    private static final FunctionalityInfo PLAIN = FunctionalityInfo.create("test.plain", false, false, false, null, null);
+    private static final FunctionalityInfo RESERVED = FunctionalityInfo.create("test.reserved", true, false, false, null, null);
+    private static final FunctionalityInfo RESTRICTED = FunctionalityInfo.create("test.restricted", true, true, false, null, null);
+
+    private final AuthEnvelopes authEnvelopes = new AuthEnvelopes(() -> json("{\"token\":\"id\"}"), () -> json("{\"otp\":\"en\"}"));
+
+    @Test
+    public void writesPlainCallsWithoutEnvelope() {
+        assertNull(authEnvelopes.envelope(PLAIN));
+        assertEquals("{\"name\":\"test.plain\",\"param\":{\"a\":1},\"id\":7}", write(PLAIN, "{\"a\":1}", 7));
+    }
+
+    @Test
+    public void nestsIdentificationDataInsideReservedRequest() {
+        assertEquals("{\"name\":\"" + CALL_RESERVED + "\",\"param\":"
+                + "{\"name\":\"test.reserved\",\"param\":{\"a\":1},\"data\":{\"token\":\"id\"}},\"id\":8}", write(RESERVED, "{\"a\":1}", 8));
+    }
+
+    @Test
+    public void nestsEnableAndIdentificationDataInsideRestrictedRequest() {
+        assertEquals("{\"name\":\"" + CALL_RESERVED + "\",\"param\":"
+                + "{\"name\":\"" + CALL_RESTRICTED + "\",\"param\":"
+                + "{\"name\":\"test.restricted\",\"param\":{\"a\":1},\"data\":{\"otp\":\"en\"}},"
+                + "\"data\":{\"token\":\"id\"}},\"id\":9}", write(RESTRICTED, "{\"a\":1}", 9));
+    }
+
+    @Test
+    public void omitsMissingParam() {
+        assertEquals("{\"name\":\"" + CALL_RESERVED + "\",\"param\":"
+                + "{\"name\":\"test.reserved\",\"data\":{\"token\":\"id\"}},\"id\":10}", write(RESERVED, null, 10));
+    }
+
+    @Test
+    public void writesMissingCredentialsAsNull() {
+        AuthEnvelopes anonymous = new AuthEnvelopes(() -> null, () -> null);
+        String json = RpcRequestWriter.json(anonymous.envelope(RESERVED), "test.reserved", null, 11);
+        assertEquals("{\"name\":\"" + CALL_RESERVED + "\",\"param\":{\"name\":\"test.reserved\",\"data\":null},\"id\":11}", json);
+    }
+
+    @Test
+    public void escapesFrameExactlyLikeTheEncoder() {
+        String param = "{\"text\":\"quote \\\" tab \\t line \\u2028\"}";
+        for(FunctionalityInfo functionalityInfo : new FunctionalityInfo[] { PLAIN, RESERVED, RESTRICTED }) {
+            AuthEnvelopes.Envelope envelope = authEnvelopes.envelope(functionalityInfo);
+            String name = functionalityInfo.getFunctionalityFullyQualifiedName();
+            assertEquals(SockJSFrameEncoder.encode(RpcRequestWriter.json(envelope, name, json(param), 12)), RpcRequestWriter.frame(envelope, name, json(param), 12));
+        }
+    }
+
+    @Test
+    public void pollsCredentialsOnEveryCallByDefault() {
+        AtomicReference<String> token = new AtomicReference<>("first");
+        AuthEnvelopes rotating = new AuthEnvelopes(() -> json("{\"token\":\"" + token.get() + "\"}"), () -> null);
+        assertEquals(",\"data\":{\"token\":\"first\"}}", rotating.envelope(RESERVED).suffix);
+        token.set("second");
+        assertEquals(",\"data\":{\"token\":\"second\"}}", rotating.envelope(RESERVED).suffix);
+    }
+
+    @Test
+    public void cachesEnvelopesWhileTheCredentialsVersionIsUnchanged() {
+        AtomicInteger version = new AtomicInteger();
+        AtomicInteger polls = new AtomicInteger();
+        AuthEnvelopes versioned = new AuthEnvelopes(() -> json("{\"token\":" + polls.incrementAndGet() + "}"), () -> null);
+        versioned.credentialsVersion(version::get);
+        AuthEnvelopes.Envelope first = versioned.envelope(RESERVED);
+        assertSame(first, versioned.envelope(RESERVED));
+        assertEquals(1, polls.get());
+        version.incrementAndGet();
+        assertEquals(",\"data\":{\"token\":2}}", versioned.envelope(RESERVED).suffix);
+    }
+
+    private final String write(FunctionalityInfo functionalityInfo, String param, long id) {
+        return RpcRequestWriter.json(authEnvelopes.envelope(functionalityInfo), functionalityInfo.getFunctionalityFullyQualifiedName(), param == null ? null : json(param), id);
+    }
+
+    private static final DataRepresentation json(String json) {
+        return Tools.FACTORY_DATA_REPRESENTATION.fromJson(json);
+    }
+}
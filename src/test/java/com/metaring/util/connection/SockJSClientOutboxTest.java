@@ -0,0 +1,69 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class SockJSClientOutboxTest {
+
+    private final SockJSClient client = SockJSClient.create("ws://localhost:1/ws", Transport.WEBSOCKET);
+
+    @Test
+    public void queuesFramesWhileClosedWithoutReportingThemWritten() {
+        AtomicBoolean written = new AtomicBoolean();
+        client.sendFrame("{\"id\":1}", () -> written.set(true));
+        client.sendFrame("{\"id\":2}");
+        assertFalse(written.get());
+        assertEquals(2, client.getOutboxSize());
+        assertEquals(Arrays.asList("{\"id\":1}", "{\"id\":2}"), client.clearOutbox());
+        assertFalse(written.get());
+    }
+
+    @Test
+    public void rejectsWhenFull() {
+        client.outbox(2, OutboxOverflowPolicy.REJECT);
+        client.sendFrame("1").sendFrame("2");
+        try {
+            client.sendFrame("3");
+            fail("expected a rejection");
+        }
+        catch(RejectedExecutionException e) {
+            assertEquals(Arrays.asList("1", "2"), client.clearOutbox());
+        }
+    }
+
+    @Test
+    public void dropsOldestWhenConfigured() {
+        List<String> dropped = new ArrayList<>();
+        client.outbox(2, OutboxOverflowPolicy.DROP_OLDEST).onOutboxDrop(dropped::add);
+        client.sendFrame("1").sendFrame("2").sendFrame("3");
+        assertEquals(Arrays.asList("1"), dropped);
+        assertEquals(Arrays.asList("2", "3"), client.clearOutbox());
+        assertTrue(client.getOutboxCapacity() >= 2);
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SockJSFrameDecoderTest {
+
+    private static List<String> decode(String frame, int offset) {
+        List<String> messages = new ArrayList<>();
+        assertEquals(SockJSFrameDecoder.decodeArray(frame, offset, messages::add), messages.size());
+        return messages;
+    }
+
+    @Test
+    public void decodesMessagesAfterTheFrameType() {
+        assertEquals(Arrays.asList("{\"id\":1}", "{\"id\":2}"), decode("a[\"{\\\"id\\\":1}\",\"{\\\"id\\\":2}\"]", 1));
+        assertEquals(Arrays.asList(), decode("a[]", 1));
+        assertEquals(Arrays.asList("x"), decode(" [ \"x\" ] ", 0));
+    }
+
+    @Test
+    public void decodesEscapesAndLineSeparators() {
+        assertEquals(Arrays.asList("tab\t quote\" slash\\ ls\u2028 ps\u2029"), decode("a[\"tab\\t quote\\\" slash\\\\ ls\\u2028 ps\\u2029\"]", 1));
+        assertEquals(Arrays.asList("raw\u2028"), decode("a[\"raw\u2028\"]", 1));
+    }
+
+    @Test
+    public void passesNonStringElementsThroughVerbatim() {
+        assertEquals(Arrays.asList("{\"a\":[1,\"]\"]}", "[2,{}]", "3", "null"), decode("[{\"a\":[1,\"]\"]},[2,{}],3,null]", 0));
+    }
+
+    @Test
+    public void rejectsMalformedFrames() {
+        for(String frame : new String[] { "o", "a", "a[", "a[\"x\"", "a[\"x\",]", "a[\"x\" \"y\"]", "a[\"open]", "a[,\"x\"]", "a[\"\\q\"]" }) {
+            try {
+                decode(frame, 1);
+                fail("expected " + frame + " to be rejected");
+            }
+            catch(IllegalArgumentException e) {
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SockJSWriteCoalescerTest {
+
+    private final List<String> frames = new ArrayList<>();
+    private final List<Runnable> callbacks = new ArrayList<>();
+    private final SockJSWriteCoalescer coalescer = new SockJSWriteCoalescer((frame, onWritten) -> {
+        frames.add(frame);
+        callbacks.add(onWritten);
+    }, 0, 3, 0);
+
+    @Test
+    public void batchesFramesIntoOneArray() {
+        coalescer.addFrame("[\"a\"]");
+        coalescer.addFrame("[\"b\"]");
+        assertTrue(frames.isEmpty());
+        coalescer.flush();
+        assertEquals(Arrays.asList("[\"a\",\"b\"]"), frames);
+        assertNull(callbacks.get(0));
+    }
+
+    @Test
+    public void runsWriteCallbacksOnlyWhenTheBatchIsWritten() {
+        List<String> written = new ArrayList<>();
+        coalescer.addFrame("[\"a\"]", () -> written.add("a"));
+        coalescer.addFrame("[\"b\"]");
+        coalescer.addFrame("[\"c\"]", () -> written.add("c"));
+        assertEquals(1, frames.size());
+        assertTrue(written.isEmpty());
+        callbacks.get(0).run();
+        assertEquals(Arrays.asList("a", "c"), written);
+        coalescer.addFrame("[\"d\"]");
+        coalescer.flush();
+        assertNull(callbacks.get(1));
+    }
+}
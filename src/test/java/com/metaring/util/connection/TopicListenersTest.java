@@ -0,0 +1,105 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TopicListenersTest {
+
+    private final TopicRegistry registry = new TopicRegistry();
+    private final List<Runnable> pending = new ArrayList<>();
+    private final StripedExecutor executor = new StripedExecutor(pending::add, 4);
+    private final List<String> received = new ArrayList<>();
+
+    @Test
+    public void keepsOnlyTheLatestPayloadPerTopic() {
+        TopicSubscription subscription = registry.add("prices.*", TopicListeners.conflating(null, this::receive));
+        publish("prices.eur", "1");
+        publish("prices.eur", "2");
+        publish("prices.eur", "3");
+        runPending();
+        assertEquals(1, received.size());
+        assertEquals("3", received.get(0));
+        assertEquals(3, subscription.getReceivedCount());
+        assertEquals(2, subscription.getConflatedCount());
+        assertEquals(1, subscription.getDeliveredCount());
+    }
+
+    @Test
+    public void conflatesEachTopicSeparately() {
+        registry.add("prices.*", TopicListeners.conflating(null, this::receive));
+        publish("prices.eur", "1");
+        publish("prices.usd", "2");
+        publish("prices.eur", "3");
+        runPending();
+        assertEquals(2, received.size());
+        assertTrue(received.contains("2"));
+        assertTrue(received.contains("3"));
+    }
+
+    @Test
+    public void conflatesByTheExtractedKey() {
+        registry.add("book", TopicListeners.conflating(payload -> payload.rawJson().charAt(1), this::receive));
+        publish("book", "\"a1\"");
+        publish("book", "\"b1\"");
+        publish("book", "\"a2\"");
+        runPending();
+        assertEquals(2, received.size());
+        assertTrue(received.contains("\"a2\""));
+        assertTrue(received.contains("\"b1\""));
+    }
+
+    @Test
+    public void deliversEveryPayloadThatArrivesAfterADrain() {
+        TopicSubscription subscription = registry.add("prices.eur", TopicListeners.conflating(null, this::receive));
+        publish("prices.eur", "1");
+        runPending();
+        publish("prices.eur", "2");
+        runPending();
+        assertEquals(2, received.size());
+        assertEquals(0, subscription.getConflatedCount());
+    }
+
+    @Test
+    public void dropsTheHeldPayloadOnUnsubscribe() {
+        TopicSubscription subscription = registry.add("prices.eur", TopicListeners.conflating(null, this::receive));
+        publish("prices.eur", "1");
+        subscription.unsubscribe();
+        runPending();
+        assertTrue(received.isEmpty());
+    }
+
+    private final void receive(LazyFunctionalityExecutionResult payload) {
+        received.add(payload.rawJson().toString());
+    }
+
+    private final void publish(String topic, String payload) {
+        registry.dispatch(topic, subscription -> subscription.deliver(topic, LazyFunctionalityExecutionResult.ofPayload(payload, 0, payload.length()), executor));
+    }
+
+    private final void runPending() {
+        while(!pending.isEmpty()) {
+            pending.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class TopicPublisherTest {
+
+    private final TopicRegistry registry = new TopicRegistry();
+
+    @Test
+    public void signalsOnSubscribeBeforeRegisteringTheListener() {
+        Recorder recorder = new Recorder(subscription -> {
+            subscription.request(Long.MAX_VALUE);
+            publish("a.b", "1");
+        });
+        publisher("a.*", 4, TopicOverflowStrategy.DROP_OLDEST).subscribe(recorder);
+        assertEquals(0, recorder.received.size());
+        publish("a.b", "2");
+        assertEquals(1, recorder.received.size());
+        assertEquals("2", recorder.received.get(0));
+        assertFalse(recorder.overlapped);
+    }
+
+    @Test
+    public void emitsNoMoreThanRequested() {
+        Recorder recorder = new Recorder(subscription -> subscription.request(2));
+        publisher("a", 4, TopicOverflowStrategy.DROP_OLDEST).subscribe(recorder);
+        publish("a", "1");
+        publish("a", "2");
+        publish("a", "3");
+        assertEquals(2, recorder.received.size());
+        recorder.subscription.request(1);
+        assertEquals(3, recorder.received.size());
+        assertEquals("3", recorder.received.get(2));
+    }
+
+    @Test
+    public void stopsDeliveringAndUnsubscribesOnCancel() {
+        Recorder recorder = new Recorder(subscription -> subscription.request(Long.MAX_VALUE));
+        publisher("a", 4, TopicOverflowStrategy.DROP_OLDEST).subscribe(recorder);
+        publish("a", "1");
+        recorder.subscription.cancel();
+        publish("a", "2");
+        assertEquals(1, recorder.received.size());
+        assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void neverRegistersWhenCancelledDuringOnSubscribe() {
+        Recorder recorder = new Recorder(Subscription::cancel);
+        publisher("a", 4, TopicOverflowStrategy.DROP_OLDEST).subscribe(recorder);
+        assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void signalsOnErrorForNonPositiveRequests() {
+        Recorder recorder = new Recorder(subscription -> subscription.request(0));
+        publisher("a", 4, TopicOverflowStrategy.DROP_OLDEST).subscribe(recorder);
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertFalse(recorder.overlapped);
+        assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void keepsTheNewestPayloadsWhenDroppingOldest() {
+        Recorder recorder = new Recorder(subscription -> {});
+        publisher("a", 2, TopicOverflowStrategy.DROP_OLDEST).subscribe(recorder);
+        publish("a", "1");
+        publish("a", "2");
+        publish("a", "3");
+        recorder.subscription.request(3);
+        assertEquals(2, recorder.received.size());
+        assertEquals("2", recorder.received.get(0));
+        assertEquals("3", recorder.received.get(1));
+    }
+
+    @Test
+    public void failsTheSubscriberOnOverflowWithTheErrorStrategy() {
+        Recorder recorder = new Recorder(subscription -> {});
+        publisher("a", 1, TopicOverflowStrategy.ERROR).subscribe(recorder);
+        publish("a", "1");
+        publish("a", "2");
+        recorder.subscription.request(1);
+        assertTrue(recorder.error != null);
+        assertTrue(registry.isEmpty());
+    }
+
+    private final TopicPublisher<String> publisher(String pattern, int bufferSize, TopicOverflowStrategy overflowStrategy) {
+        return new TopicPublisher<>(registry, pattern, bufferSize, overflowStrategy, Runnable::run, Function.<LazyFunctionalityExecutionResult>identity().andThen(result -> result.rawJson().toString()));
+    }
+
+    private final void publish(String topic, String payload) {
+        registry.dispatch(topic, subscription -> subscription.deliver(topic, LazyFunctionalityExecutionResult.ofPayload(payload, 0, payload.length()), null));
+    }
+
+    private static final class Recorder implements Subscriber<String> {
+
+        private final Consumer<Subscription> onSubscribe;
+        private final List<String> received = new ArrayList<>();
+        private Subscription subscription;
+        private Throwable error;
+        private boolean subscribing;
+        private boolean overlapped;
+
+        private Recorder(Consumer<Subscription> onSubscribe) {
+            this.onSubscribe = onSubscribe;
+        }
+
+        @Override
+        public final void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscribing = true;
+            onSubscribe.accept(subscription);
+            subscribing = false;
+        }
+
+        @Override
+        public final void onNext(String item) {
+            overlapped |= subscribing;
+            received.add(item);
+        }
+
+        @Override
+        public final void onError(Throwable error) {
+            overlapped |= subscribing;
+            this.error = error;
+        }
+
+        @Override
+        public final void onComplete() {
+        }
+    }
+}
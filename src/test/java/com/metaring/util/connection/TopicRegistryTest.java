@@ -0,0 +1,76 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class TopicRegistryTest {
+
+    private final TopicRegistry registry = new TopicRegistry();
+    private final TopicListener listener = (subscription, topic, payload, executor) -> {};
+
+    @Test
+    public void prunesEmptyNodesOnRemove() {
+        TopicSubscription first = registry.add("orders.eu.*", listener);
+        TopicSubscription second = registry.add("orders.#", listener);
+        registry.remove(first);
+        assertFalse(registry.isEmpty());
+        assertTrue(registry.hasSubscribers("orders.eu.rome"));
+        registry.remove(second);
+        assertTrue(registry.isEmpty());
+        assertFalse(registry.hasSubscribers("orders.eu.rome"));
+    }
+
+    @Test
+    public void keepsNodesThatStillHaveSubscribers() {
+        TopicSubscription parent = registry.add("orders", listener);
+        TopicSubscription child = registry.add("orders.eu", listener);
+        registry.remove(child);
+        assertTrue(registry.hasSubscribers("orders"));
+        assertFalse(registry.hasSubscribers("orders.eu"));
+        registry.remove(parent);
+        assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void rejectsMultiSegmentWildcardBeforeTheLastSegment() {
+        for(String pattern : new String[] { "#.x", "a.#.b" }) {
+            try {
+                registry.add(pattern, listener);
+                fail("expected " + pattern + " to be rejected");
+            }
+            catch(IllegalArgumentException e) {
+                assertTrue(registry.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void matchesSingleAndTrailingWildcards() {
+        registry.add("a.*.c", listener);
+        registry.add("x.#", listener);
+        assertTrue(registry.hasSubscribers("a.b.c"));
+        assertFalse(registry.hasSubscribers("a.b.d"));
+        assertFalse(registry.hasSubscribers("a.c"));
+        assertTrue(registry.hasSubscribers("x"));
+        assertTrue(registry.hasSubscribers("x.y.z"));
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class Utf8FramesTest {
+
+    private static final String[] SAMPLES = {
+        "",
+        "{\"name\":\"plain ascii\"}",
+        "caf\u00e9 \u00fc\u00df",
+        "\u20ac \u4e2d\u6587",
+        "emoji \ud83d\ude00 pair",
+        "lone \ud83d surrogate",
+        "quote \" backslash \\ slash /",
+        "controls \n \r \t \b \f \u0001 \u001f",
+        "separators \u2028 and \u2029"
+    };
+
+    @Test
+    public void encodesLikeTheJdk() {
+        for(String sample : SAMPLES) {
+            byte[] expected = sample.getBytes(StandardCharsets.UTF_8);
+            assertEquals(sample, expected.length, Utf8Frames.encodedLength(sample));
+            assertArrayEquals(expected, bytes(Utf8Frames.encode(sample, ByteBuffer.allocateDirect(expected.length))));
+        }
+    }
+
+    @Test
+    public void framesLikeTheSockJSEncoder() {
+        for(String sample : SAMPLES) {
+            ByteBuffer utf8 = StandardCharsets.UTF_8.encode(sample);
+            byte[] expected = SockJSFrameEncoder.encode(sample).getBytes(StandardCharsets.UTF_8);
+            assertEquals(sample, expected.length, Utf8Frames.framedLength(utf8));
+            assertArrayEquals(expected, bytes(Utf8Frames.frame(utf8, ByteBuffer.allocateDirect(expected.length))));
+        }
+    }
+
+    @Test
+    public void framesOnlyTheRemainingBytes() {
+        ByteBuffer utf8 = StandardCharsets.UTF_8.encode("skip\"kept\"skip");
+        utf8.position(4).limit(10);
+        ByteBuffer framed = Utf8Frames.frame(utf8, ByteBuffer.allocate(Utf8Frames.framedLength(utf8)));
+        assertEquals("[\"\\\"kept\\\"\"]", StandardCharsets.UTF_8.decode(framed).toString());
+        assertEquals(4, utf8.position());
+    }
+
+    private static final byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ *    Copyright 2019 MetaRing s.r.l.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.metaring.util.connection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class WebSocketTransportTest {
+
+    private final SockJSClient client = SockJSClient.create("ws://localhost:1/ws", Transport.WEBSOCKET);
+
+    @Test
+    public void derivesTheWebSocketUrlFromTheConnection() {
+        assertEquals("ws://host:8080/ws", SockJSClient.webSocketUrl("http://host:8080/ws"));
+        assertEquals("wss://host/ws", SockJSClient.webSocketUrl("HTTPS://host/ws"));
+        assertEquals("wss://host/ws", SockJSClient.webSocketUrl("  wss://host/ws "));
+        assertEquals("ws://host/ws", SockJSClient.webSocketUrl("ws://host/ws"));
+    }
+
+    @Test
+    public void queuesTextWithoutSockJSFraming() {
+        client.send("{\"text\":\"quote \\\" line \\u2028\"}");
+        assertEquals(Arrays.asList("{\"text\":\"quote \\\" line \\u2028\"}"), client.clearOutbox());
+    }
+
+    @Test
+    public void queuesUtf8BuffersWithoutSockJSFramingOrConsumingThem() {
+        ByteBuffer utf8 = StandardCharsets.UTF_8.encode("{\"name\":\"caf\u00e9\"}");
+        int position = utf8.position();
+        client.send(utf8);
+        assertEquals(position, utf8.position());
+        assertEquals(Arrays.asList("{\"name\":\"caf\u00e9\"}"), client.clearOutbox());
+    }
+
+    @Test
+    public void dispatchesMessagesWithoutSockJSUnframing() {
+        List<String> received = new ArrayList<>();
+        client.onMessage((String message) -> received.add(message));
+        client.getSession().onMessage("a[\"framed\"]");
+        client.getSession().onMessage("h");
+        client.getSession().onMessage("{\"id\":1}");
+        assertEquals(Arrays.asList("a[\"framed\"]", "h", "{\"id\":1}"), received);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refusesWriteCoalescing() {
+        client.coalesce(1, TimeUnit.MILLISECONDS, 8, 1024);
+    }
+}